@@ -0,0 +1,88 @@
+package com.learningcurve.compiler;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+/**
+ * Documentos usados nos benchmarks, gerados em memória e analisados uma única vez no setup
+ */
+final class BenchmarkDocuments {
+
+	private BenchmarkDocuments() {
+	}
+
+	/**
+	 * Gera um documento
+	 *
+	 * @param kind lesson (lição com todos os comandos), markup (parágrafos com muita marcação inline)
+	 *             ou table (tabela grande)
+	 * @return Programa LCML
+	 */
+	static String generate(String kind) {
+		var text = new StringBuilder();
+
+		switch (kind) {
+			case "lesson":
+				for (int i = 0; i < 20; i++) {
+					lesson(text, i);
+				}
+				break;
+
+			case "markup":
+				text.append("#1 Marcação\n\n");
+
+				for (int i = 0; i < 200; i++) {
+					text.append("Texto com **negrito ").append(i).append("**, *itálico*, ~~riscado~~ e __sublinhado__\n");
+					text.append("mais uma linha com ^sobrescrito^, ~subscrito~, ++maior++ e [um link](http://x.com/")
+							.append(i).append(")\n\n");
+				}
+				break;
+
+			case "table":
+				text.append("#1 Tabela\n\n#table border\n=Nome|>Valor|Descrição|Observação\n");
+
+				for (int i = 0; i < 1000; i++) {
+					text.append("Item ").append(i).append('|').append(i * 31).append("|Descrição **").append(i)
+							.append("**|Obs. *").append(i % 7).append("*\n");
+				}
+
+				text.append("#table\n");
+				break;
+
+			default:
+				throw new IllegalArgumentException("Documento desconhecido: " + kind);
+		}
+
+		return text.toString();
+	}
+
+	private static void lesson(StringBuilder text, int i) {
+		text.append("#1 Capítulo ").append(i).append(" com **negrito**\n#2 Seção ").append(i).append("\n\n")
+				.append("Um parágrafo com [link](http://x.com) e ~~riscado~~\ncontinua aqui\\\n\\\nfim\n\n")
+				.append("#concepts\n- Conceito **um**\n- Conceito dois\n#concepts\n\n")
+				.append("#list\nitem 1\nitem ++2++\n#list\n\n")
+				.append("#img foto.png \"Uma foto\" 100 200\n#video https://youtube.com/embed/abc 640 480\n\n")
+				.append("#scenario\n- passo um\n- passo dois\n#scenario\n\n")
+				.append("#table border\n=Nome|>Idade|Cidade\nAna|30|Rio\nBob|25|SP\n#table\n\n")
+				.append("#code java\nint x = 1;\n\tif (x < 2) { y = \"a\" & b; }\n#code\n\n")
+				.append("#question\nPergunta ").append(i).append("?\n\n()Sim\n(*)Não\n#question\n\n");
+	}
+
+	/**
+	 * Analisa o documento e retorna os tokens prontos para a tradução
+	 *
+	 * @param program Programa LCML
+	 * @return Lista de tokens
+	 * @throws IOException Em caso de erro de leitura
+	 */
+	static List<TokenNode> parse(String program) throws IOException {
+		var parser = new Parser(new LineStore(new StringReader(program)), null, new JsonErrorListener());
+		parser.setPrintSyntax(false);
+
+		if (!parser.parse())
+			throw new IllegalStateException("Documento de benchmark com erros");
+
+		return List.copyOf(parser.getTokens());
+	}
+}
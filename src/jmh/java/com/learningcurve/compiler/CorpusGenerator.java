@@ -0,0 +1,306 @@
+package com.learningcurve.compiler;
+
+import java.util.SplittableRandom;
+
+/**
+ * Gera documentos LCML sintéticos, reproduzíveis pela semente, para os testes de desempenho.
+ * O tamanho e a mistura dos blocos são configuráveis; o mesmo índice com a mesma semente e
+ * configuração gera sempre o mesmo documento.
+ */
+public class CorpusGenerator {
+
+	private static final String[] WORDS = { "compilador", "linguagem", "token", "contexto", "tabela", "questão",
+			"conceito", "cenário", "parágrafo", "análise", "léxico", "sintático", "semântico", "tradução", "saída",
+			"lição", "exemplo", "aluno", "curva", "aprendizado", "código", "lista", "imagem", "vídeo", "texto" };
+
+	private static final String[] LANGUAGES = { "java", "python", "javascript", "c", "" };
+
+	private long seed = 42;
+
+	// Linhas aproximadas de cada documento
+	private int lines = 500;
+
+	// Chance de cada bloco ser um parágrafo; os demais tipos dividem o restante
+	private double paragraphDensity = 0.5;
+
+	// Chance de cada palavra de texto receber marcação inline
+	private double markupDensity = 0.1;
+
+	private int tableRows = 10;
+	private int tableColumns = 4;
+
+	// Chance de um bloco (que não é parágrafo) ser código
+	private double codeDensity = 0.15;
+
+	private int questionOptions = 4;
+
+	// Chance de um bloco de conceitos ou cenário conter uma lista, tabela ou código
+	private double nestingDensity = 0.3;
+
+	// Chance de um documento receber até três linhas inválidas
+	private double invalidDocumentRate = 0.0;
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public void setLines(int lines) {
+		this.lines = lines;
+	}
+
+	public void setParagraphDensity(double paragraphDensity) {
+		this.paragraphDensity = paragraphDensity;
+	}
+
+	public void setMarkupDensity(double markupDensity) {
+		this.markupDensity = markupDensity;
+	}
+
+	public void setTableSize(int rows, int columns) {
+		this.tableRows = rows;
+		this.tableColumns = columns;
+	}
+
+	public void setCodeDensity(double codeDensity) {
+		this.codeDensity = codeDensity;
+	}
+
+	public void setQuestionOptions(int questionOptions) {
+		this.questionOptions = Math.max(2, questionOptions);
+	}
+
+	public void setNestingDensity(double nestingDensity) {
+		this.nestingDensity = nestingDensity;
+	}
+
+	public void setInvalidDocumentRate(double invalidDocumentRate) {
+		this.invalidDocumentRate = invalidDocumentRate;
+	}
+
+	/**
+	 * Gera um documento
+	 *
+	 * @param index Índice do documento no corpus
+	 * @return Programa LCML
+	 */
+	public String generate(int index) {
+		var random = new SplittableRandom(seed * 1_000_003 + index);
+		var text = new StringBuilder(lines * 60);
+		var header = 0;
+		var invalid = random.nextDouble() < invalidDocumentRate ? 1 + random.nextInt(3) : 0;
+		var lineCount = 0;
+		var scanned = 0;
+
+		text.append("#1 Documento ").append(index).append('\n').append('\n');
+
+		for (; lineCount < lines; lineCount += newLines(text, scanned), scanned = text.length()) {
+			// Entre dois blocos o contexto é sempre DEFAULT, onde essas linhas são inválidas
+			if (invalid > 0 && random.nextDouble() < 0.1) {
+				text.append(random.nextBoolean() ? "#comando desconhecido" : "(alternativa fora de uma questão")
+						.append('\n');
+				invalid--;
+			}
+
+			if (random.nextDouble() < paragraphDensity) {
+				paragraph(text, random);
+				continue;
+			}
+
+			if (random.nextDouble() < codeDensity) {
+				code(text, random);
+				continue;
+			}
+
+			switch (random.nextInt(6)) {
+				case 0:
+					text.append("#2 Seção ").append(index).append('.').append(++header).append('\n').append('\n');
+					break;
+				case 1:
+					table(text, random, tableRows);
+					break;
+				case 2:
+					question(text, random);
+					break;
+				case 3:
+					concepts(text, random);
+					break;
+				case 4:
+					scenario(text, random);
+					break;
+				default:
+					list(text, random);
+					break;
+			}
+		}
+
+		return text.toString();
+	}
+
+	/**
+	 * Quantidade de linhas acrescentadas a partir de uma posição
+	 */
+	private static int newLines(StringBuilder text, int from) {
+		var count = 0;
+
+		for (int i = from; i < text.length(); i++) {
+			if (text.charAt(i) == '\n')
+				count++;
+		}
+
+		return count;
+	}
+
+	private void paragraph(StringBuilder text, SplittableRandom random) {
+		var lines = 1 + random.nextInt(5);
+
+		for (int i = 0; i < lines; i++) {
+			sentence(text, random, 6 + random.nextInt(14));
+			text.append('\n');
+		}
+
+		text.append('\n');
+	}
+
+	private void sentence(StringBuilder text, SplittableRandom random, int words) {
+		// O texto não pode começar com #, ( ou -
+		text.append("Texto");
+
+		for (int i = 0; i < words; i++) {
+			text.append(' ');
+			var word = WORDS[random.nextInt(WORDS.length)];
+
+			if (random.nextDouble() >= markupDensity) {
+				text.append(word);
+				continue;
+			}
+
+			switch (random.nextInt(5)) {
+				case 0:
+					text.append("**").append(word).append("**");
+					break;
+				case 1:
+					text.append('*').append(word).append('*');
+					break;
+				case 2:
+					text.append("~~").append(word).append("~~");
+					break;
+				case 3:
+					text.append("__").append(word).append("__");
+					break;
+				default:
+					text.append('[').append(word).append("](https://example.com/").append(word).append(')');
+					break;
+			}
+		}
+	}
+
+	private void table(StringBuilder text, SplittableRandom random, int rows) {
+		text.append("#table").append(random.nextBoolean() ? " border" : "").append('\n');
+
+		for (int c = 0; c < tableColumns; c++) {
+			text.append(c == 0 ? "=" : "|").append("Coluna ").append(c);
+		}
+
+		text.append('\n');
+
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < tableColumns; c++) {
+				if (c > 0)
+					text.append('|');
+
+				var word = WORDS[random.nextInt(WORDS.length)];
+				text.append(random.nextDouble() < markupDensity ? "**" + word + "**" : word).append(' ').append(r);
+			}
+
+			text.append('\n');
+		}
+
+		text.append("#table\n\n");
+	}
+
+	private void code(StringBuilder text, SplittableRandom random) {
+		var language = LANGUAGES[random.nextInt(LANGUAGES.length)];
+		var lines = 3 + random.nextInt(15);
+
+		text.append("#code").append(language.isEmpty() ? "" : " " + language).append('\n');
+
+		for (int i = 0; i < lines; i++) {
+			text.append("\t".repeat(random.nextInt(3))).append("int valor").append(i).append(" = calcula(\"")
+					.append(WORDS[random.nextInt(WORDS.length)]).append("\", ").append(random.nextInt(100))
+					.append("); // comentário < & >\n");
+		}
+
+		text.append("#code\n\n");
+	}
+
+	private void question(StringBuilder text, SplittableRandom random) {
+		var correct = random.nextInt(questionOptions);
+
+		text.append("#question\n");
+		sentence(text, random, 8);
+		text.append("?\n\n");
+
+		for (int i = 0; i < questionOptions; i++) {
+			text.append(i == correct ? "(*)" : "()").append("Opção ").append(i).append(' ')
+					.append(WORDS[random.nextInt(WORDS.length)]).append('\n');
+		}
+
+		text.append("#question\n\n");
+	}
+
+	private void concepts(StringBuilder text, SplittableRandom random) {
+		text.append("#concepts\n");
+
+		for (int i = 1 + random.nextInt(5); i > 0; i--) {
+			text.append("- ").append(WORDS[random.nextInt(WORDS.length)]).append(' ').append(random.nextInt(1000))
+					.append('\n');
+		}
+
+		nested(text, random);
+		text.append("#concepts\n\n");
+	}
+
+	private void scenario(StringBuilder text, SplittableRandom random) {
+		text.append("#scenario\n");
+
+		for (int i = 1 + random.nextInt(6); i > 0; i--) {
+			text.append("- ");
+			sentence(text, random, 4);
+			text.append('\n');
+		}
+
+		nested(text, random);
+		text.append("#scenario\n\n");
+	}
+
+	/**
+	 * Lista, tabela ou código dentro de um bloco de conceitos ou cenário
+	 */
+	private void nested(StringBuilder text, SplittableRandom random) {
+		if (random.nextDouble() >= nestingDensity)
+			return;
+
+		switch (random.nextInt(3)) {
+			case 0:
+				list(text, random);
+				break;
+			case 1:
+				table(text, random, Math.max(1, tableRows / 2));
+				break;
+			default:
+				code(text, random);
+				break;
+		}
+	}
+
+	private void list(StringBuilder text, SplittableRandom random) {
+		text.append("#list\n");
+
+		for (int i = 2 + random.nextInt(6); i > 0; i--) {
+			sentence(text, random, 3 + random.nextInt(5));
+			text.append('\n');
+		}
+
+		text.append("#list\n\n");
+	}
+}
@@ -0,0 +1,57 @@
+package com.learningcurve.compiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Tradução para HTML de listas de tokens já analisadas, escrevendo num fluxo nulo
+ * para que a E/S não entre na medida
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HTMLTranslatorBenchmark {
+
+	@Param({ "lesson", "markup", "table" })
+	public String document;
+
+	@Param({ "false", "true" })
+	public boolean minify;
+
+	private List<TokenNode> tokens;
+	private HTMLTranslator translator;
+	private PrintStream sink;
+	private JsonErrorListener errorListener;
+
+	@Setup
+	public void setup() throws IOException {
+		tokens = BenchmarkDocuments.parse(BenchmarkDocuments.generate(document));
+		translator = new HTMLTranslator();
+		translator.setMinify(minify);
+		sink = new PrintStream(OutputStream.nullOutputStream());
+		errorListener = new JsonErrorListener();
+	}
+
+	@Benchmark
+	public int translate() {
+		return translator.translate(tokens, sink, errorListener);
+	}
+}
@@ -0,0 +1,184 @@
+package com.learningcurve.compiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compila um corpus sintético de ponta a ponta (Parser.compile, com tradução para HTML num fluxo nulo)
+ * e mostra linhas/s, MB/s, latência p50/p99 por documento e o pico de uso do heap.
+ * <p>
+ * Uso: java -cp target/benchmarks.jar com.learningcurve.compiler.LoadHarness [opção=valor...]
+ * <p>
+ * Opções: documents, lines, seed, warmup (rodadas descartadas), paragraphs, markup, rows, columns, code,
+ * options (alternativas por questão), nesting, invalid (fração de documentos com linhas inválidas),
+ * pipeline (true para compilar em pipeline) e out (pasta onde gravar o corpus, para usar com o Main).
+ */
+public final class LoadHarness {
+
+	private LoadHarness() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		var documents = 100;
+		var warmup = 2;
+		Path out = null;
+		var generator = new CorpusGenerator();
+		var rows = 10;
+		var columns = 4;
+		var pipeline = false;
+
+		for (var arg : args) {
+			var separator = arg.indexOf('=');
+
+			if (separator < 0) {
+				System.out.printf("Opção inválida: %s\n", arg);
+				return;
+			}
+
+			var value = arg.substring(separator + 1);
+
+			switch (arg.substring(0, separator)) {
+				case "documents":
+					documents = Integer.parseInt(value);
+					break;
+				case "warmup":
+					warmup = Integer.parseInt(value);
+					break;
+				case "out":
+					out = Path.of(value);
+					break;
+				case "pipeline":
+					pipeline = Boolean.parseBoolean(value);
+					break;
+				case "seed":
+					generator.setSeed(Long.parseLong(value));
+					break;
+				case "lines":
+					generator.setLines(Integer.parseInt(value));
+					break;
+				case "paragraphs":
+					generator.setParagraphDensity(Double.parseDouble(value));
+					break;
+				case "markup":
+					generator.setMarkupDensity(Double.parseDouble(value));
+					break;
+				case "rows":
+					rows = Integer.parseInt(value);
+					break;
+				case "columns":
+					columns = Integer.parseInt(value);
+					break;
+				case "code":
+					generator.setCodeDensity(Double.parseDouble(value));
+					break;
+				case "options":
+					generator.setQuestionOptions(Integer.parseInt(value));
+					break;
+				case "nesting":
+					generator.setNestingDensity(Double.parseDouble(value));
+					break;
+				case "invalid":
+					generator.setInvalidDocumentRate(Double.parseDouble(value));
+					break;
+				default:
+					System.out.printf("Opção desconhecida: %s\n", arg);
+					return;
+			}
+		}
+
+		generator.setTableSize(rows, columns);
+
+		var corpus = new ArrayList<String>(documents);
+		long bytes = 0;
+
+		for (int i = 0; i < documents; i++) {
+			var program = generator.generate(i);
+			corpus.add(program);
+			bytes += program.getBytes(StandardCharsets.UTF_8).length;
+		}
+
+		if (out != null) {
+			Files.createDirectories(out);
+
+			for (int i = 0; i < corpus.size(); i++) {
+				Files.writeString(out.resolve(String.format("doc-%04d.lcml", i)), corpus.get(i));
+			}
+		}
+
+		for (int i = 0; i < warmup; i++) {
+			run(corpus, new long[corpus.size()], pipeline);
+		}
+
+		// O pico do heap é medido somente na rodada final
+		System.gc();
+		var heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+				.filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+		heapPools.forEach(pool -> pool.resetPeakUsage());
+
+		var latencies = new long[corpus.size()];
+		var start = System.nanoTime();
+		var result = run(corpus, latencies, pipeline);
+		var seconds = (System.nanoTime() - start) / 1e9;
+
+		var peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+		Arrays.sort(latencies);
+
+		System.out.printf("%d documentos, %d linhas, %.2f MB (%d com erros)\n", corpus.size(), result[0],
+				bytes / 1e6, result[1]);
+		System.out.printf("%.0f linhas/s, %.2f MB/s\n", result[0] / seconds, bytes / 1e6 / seconds);
+		System.out.printf("Latência por documento: p50 %.2f ms, p99 %.2f ms, máx. %.2f ms\n",
+				percentile(latencies, 0.5) / 1e6, percentile(latencies, 0.99) / 1e6,
+				latencies[latencies.length - 1] / 1e6);
+		System.out.printf("Pico do heap: %.1f MB\n", peakHeap / 1e6);
+	}
+
+	/**
+	 * Compila todos os documentos
+	 *
+	 * @param corpus    Documentos
+	 * @param latencies Recebe o tempo de cada documento
+	 * @param pipeline  V para compilar em pipeline
+	 * @return {linhas, documentos com erros}
+	 */
+	private static long[] run(List<String> corpus, long[] latencies, boolean pipeline) throws IOException {
+		var sink = new PrintStream(OutputStream.nullOutputStream());
+		long lines = 0;
+		long failed = 0;
+
+		for (int i = 0; i < corpus.size(); i++) {
+			var start = System.nanoTime();
+
+			var reader = new StringReader(corpus.get(i));
+			var parser = new Parser(pipeline ? new StreamingReader(reader) : new LineStore(reader), sink,
+					new JsonErrorListener());
+			parser.setPrintSyntax(false);
+			parser.setPipelined(pipeline);
+
+			if (!parser.compile())
+				failed++;
+
+			latencies[i] = System.nanoTime() - start;
+			lines += parser.getStats().getLines();
+		}
+
+		return new long[] { lines, failed };
+	}
+
+	private static long percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0)
+			return 0;
+
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * fraction) - 1)];
+	}
+}
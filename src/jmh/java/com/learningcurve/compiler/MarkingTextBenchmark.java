@@ -0,0 +1,57 @@
+package com.learningcurve.compiler;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversão da marcação inline (HTMLTranslator.convertMarkingText) em textos representativos
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MarkingTextBenchmark {
+
+	@Param({ "plain", "bold", "nested", "link" })
+	public String text;
+
+	private String input;
+	private HTMLTranslator translator;
+
+	@Setup
+	public void setup() {
+		translator = new HTMLTranslator();
+
+		var raw = switch (text) {
+			case "plain" -> "Um parágrafo comum, sem nenhuma marcação, com o tamanho de uma linha típica de uma lição.";
+			case "bold" -> "Um texto com **uma palavra importante** em negrito no meio da frase.";
+			case "nested" -> "**Negrito com *itálico* dentro** e ~~riscado com __sublinhado__~~, ^sobrescrito^, "
+					+ "~subscrito~, ++maior++ e *mais **um** nível*";
+			case "link" -> "Veja [a documentação completa da linguagem](https://example.com/docs/lcml/referencia/"
+					+ "comandos?versao=2&secao=marcacao#links) e [outro link](https://example.com/" + "pasta/".repeat(30)
+					+ "arquivo.html)";
+			default -> throw new IllegalArgumentException("Texto desconhecido: " + text);
+		};
+
+		// O tradutor recebe o texto já escapado
+		input = HtmlEscaper.escape(raw);
+	}
+
+	@Benchmark
+	public String convertMarkingText() {
+		return translator.convertMarkingText(input);
+	}
+}
@@ -0,0 +1,144 @@
+package com.learningcurve.compiler;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Fila circular limitada entre uma única thread produtora e uma única thread consumidora.
+ * Os lotes são criados uma vez e reaproveitados: o produtor preenche o lote da próxima posição livre
+ * e o publica; o consumidor lê o lote publicado e o libera. Com a fila cheia o produtor espera,
+ * o que limita a memória ocupada pelos lotes em trânsito.
+ *
+ * @param <T> Tipo do lote
+ */
+final class BatchRing<T> {
+
+	// Esperas curtas giram antes de estacionar a thread; com um só processador, girar só atrasa a outra thread
+	private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 200 : 0;
+	private static final long PARK_NANOS = 20_000;
+
+	private final Object[] slots;
+	private final int mask;
+
+	// Próxima posição a consumir e próxima posição a publicar; só cada uma das threads avança a sua
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	// Fim dos dados (publicado pelo produtor) e cancelamento (pedido por qualquer um dos lados)
+	private volatile boolean closed;
+	private volatile boolean cancelled;
+	private volatile Throwable failure;
+
+	/**
+	 * @param capacity Quantidade de lotes, arredondada para uma potência de 2
+	 * @param factory  Cria cada lote
+	 */
+	BatchRing(int capacity, Supplier<T> factory) {
+		var size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+
+		this.slots = new Object[size];
+		this.mask = size - 1;
+
+		for (int i = 0; i < size; i++) {
+			slots[i] = factory.get();
+		}
+	}
+
+	/**
+	 * Produtor: retorna o próximo lote livre, esperando se a fila estiver cheia
+	 *
+	 * @throws CancellationException Se o consumidor cancelou a fila
+	 */
+	@SuppressWarnings("unchecked")
+	T claim() {
+		var position = tail.get();
+
+		for (int spins = 0; position - head.get() == slots.length; spins++) {
+			if (cancelled)
+				throw new CancellationException();
+
+			pause(spins);
+		}
+
+		if (cancelled)
+			throw new CancellationException();
+
+		return (T) slots[(int) position & mask];
+	}
+
+	/**
+	 * Produtor: entrega ao consumidor o lote obtido em claim()
+	 */
+	void publish() {
+		tail.set(tail.get() + 1);
+	}
+
+	/**
+	 * Produtor: não há mais lotes
+	 */
+	void close() {
+		closed = true;
+	}
+
+	/**
+	 * Produtor: não há mais lotes porque a produção falhou; o consumidor recebe a exceção
+	 *
+	 * @param failure RuntimeException ou Error (por exemplo, falta de memória numa linha enorme)
+	 */
+	void fail(Throwable failure) {
+		this.failure = failure;
+		closed = true;
+	}
+
+	/**
+	 * Consumidor: retorna o próximo lote publicado, esperando se a fila estiver vazia
+	 *
+	 * @return Lote ou nulo, se a fila foi fechada (e todos os lotes consumidos) ou cancelada
+	 */
+	@SuppressWarnings("unchecked")
+	T next() {
+		var position = head.get();
+
+		for (int spins = 0; position == tail.get(); spins++) {
+			if (cancelled)
+				return null;
+
+			// O fechamento só vale depois de conferir de novo a fila: o último lote pode ter chegado antes dele
+			if (closed && position == tail.get()) {
+				if (failure instanceof RuntimeException e)
+					throw e;
+				if (failure != null)
+					throw (java.lang.Error) failure;
+
+				return null;
+			}
+
+			pause(spins);
+		}
+
+		return cancelled ? null : (T) slots[(int) position & mask];
+	}
+
+	/**
+	 * Consumidor: devolve ao produtor o lote obtido em next()
+	 */
+	void release() {
+		head.set(head.get() + 1);
+	}
+
+	/**
+	 * Qualquer lado: abandona a fila; o produtor recebe CancellationException e o consumidor, nulo
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+
+	private static void pause(int spins) {
+		if (spins < SPINS)
+			Thread.onSpinWait();
+		else
+			LockSupport.parkNanos(PARK_NANOS);
+	}
+}
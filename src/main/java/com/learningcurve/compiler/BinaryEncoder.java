@@ -0,0 +1,93 @@
+package com.learningcurve.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffer de gravação dos formatos binários (cache de tokens, índice de busca),
+ * com inteiros de tamanho variável (7 bits por byte) e textos em UTF-8.
+ * Os métodos estáticos fazem a leitura correspondente.
+ */
+class BinaryEncoder extends ByteArrayOutputStream {
+
+	void writeVarint(int value) {
+		while ((value & ~0x7F) != 0) {
+			write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		write(value);
+	}
+
+	void writeZigzag(int value) {
+		writeVarint((value << 1) ^ (value >> 31));
+	}
+
+	void writeInt(int value) {
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			write(value >>> shift);
+		}
+	}
+
+	void writeLong(long value) {
+		writeInt((int) (value >>> 32));
+		writeInt((int) value);
+	}
+
+	void writeBytes(byte[] bytes, int off, int len) {
+		writeVarint(len);
+		write(bytes, off, len);
+	}
+
+	void writeString(String text) {
+		var bytes = text.getBytes(StandardCharsets.UTF_8);
+		writeBytes(bytes, 0, bytes.length);
+	}
+
+	void writeTo(BinaryEncoder target) {
+		target.write(buf, 0, count);
+	}
+
+	static int readVarint(ByteBuffer buffer) {
+		var value = 0;
+
+		for (int shift = 0; shift < 32; shift += 7) {
+			var b = buffer.get();
+			value |= (b & 0x7F) << shift;
+
+			if (b >= 0)
+				return value;
+		}
+
+		throw new IndexOutOfBoundsException("Varint inválido");
+	}
+
+	/**
+	 * Lê uma quantidade de itens ou de bytes. Cada item ocupa ao menos um byte, então uma quantidade
+	 * negativa ou maior que o restante do buffer indica um arquivo corrompido.
+	 */
+	static int readCount(ByteBuffer buffer) {
+		var count = readVarint(buffer);
+
+		if (count < 0 || count > buffer.remaining())
+			throw new IndexOutOfBoundsException("Quantidade inválida: " + count);
+
+		return count;
+	}
+
+	static int readZigzag(ByteBuffer buffer) {
+		var value = readVarint(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static byte[] readBytes(ByteBuffer buffer) {
+		var bytes = new byte[readCount(buffer)];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	static String readString(ByteBuffer buffer) {
+		return new String(readBytes(buffer), StandardCharsets.UTF_8);
+	}
+}
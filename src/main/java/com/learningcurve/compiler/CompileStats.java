@@ -0,0 +1,109 @@
+package com.learningcurve.compiler;
+
+/**
+ * Estatísticas de uma compilação: tempo de cada fase e volumes processados
+ */
+public class CompileStats {
+
+	private long lexNanos;
+	private long parseNanos;
+	private long translateNanos;
+	private long compressionNanos;
+	private int lines;
+	private int tokens;
+	private long compressionInputBytes;
+	private long compressionOutputBytes;
+	private long bytesSaved;
+
+	public void addLexNanos(long nanos) {
+		lexNanos += nanos;
+	}
+
+	public void addParseNanos(long nanos) {
+		parseNanos += nanos;
+	}
+
+	public void addTranslateNanos(long nanos) {
+		translateNanos += nanos;
+	}
+
+	public void setLines(int lines) {
+		this.lines = lines;
+	}
+
+	public void setTokens(int tokens) {
+		this.tokens = tokens;
+	}
+
+	/**
+	 * Registra o resultado da compressão da saída
+	 *
+	 * @param nanos       Tempo gasto comprimindo
+	 * @param inputBytes  Bytes de HTML antes da compressão
+	 * @param outputBytes Bytes comprimidos
+	 */
+	public void setCompression(long nanos, long inputBytes, long outputBytes) {
+		this.compressionNanos = nanos;
+		this.compressionInputBytes = inputBytes;
+		this.compressionOutputBytes = outputBytes;
+	}
+
+	/**
+	 * Registra quantos bytes a minificação economizou no documento
+	 */
+	public void setBytesSaved(long bytesSaved) {
+		this.bytesSaved = bytesSaved;
+	}
+
+	public long getBytesSaved() {
+		return bytesSaved;
+	}
+
+	public long getLexNanos() {
+		return lexNanos;
+	}
+
+	// Inclui a análise semântica, que acontece junto com a sintática
+	public long getParseNanos() {
+		return parseNanos;
+	}
+
+	public long getTranslateNanos() {
+		return translateNanos;
+	}
+
+	public long getCompressionNanos() {
+		return compressionNanos;
+	}
+
+	public int getLines() {
+		return lines;
+	}
+
+	public int getTokens() {
+		return tokens;
+	}
+
+	public long getCompressionInputBytes() {
+		return compressionInputBytes;
+	}
+
+	public long getCompressionOutputBytes() {
+		return compressionOutputBytes;
+	}
+
+	@Override
+	public String toString() {
+		var text = String.format("%d linhas, %d tokens | léxico %.2f ms, sintático %.2f ms, tradução %.2f ms",
+				lines, tokens, lexNanos / 1e6, parseNanos / 1e6, translateNanos / 1e6);
+
+		if (bytesSaved > 0)
+			text += String.format(", minificação economizou %d bytes", bytesSaved);
+
+		if (compressionInputBytes > 0)
+			text += String.format(", compressão %.2f ms (%d -> %d bytes)", compressionNanos / 1e6,
+					compressionInputBytes, compressionOutputBytes);
+
+		return text;
+	}
+}
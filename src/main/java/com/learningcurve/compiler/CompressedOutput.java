@@ -0,0 +1,183 @@
+package com.learningcurve.compiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressão da saída do tradutor com java.util.zip, gerando arquivos prontos para servidores estáticos.
+ * O tempo gasto pelo compressor é medido para entrar nas estatísticas da compilação.
+ * Cada instância comprime um único arquivo.
+ */
+public class CompressedOutput {
+
+	/**
+	 * Formatos suportados e a extensão do arquivo gerado
+	 */
+	public enum Format {
+		GZIP(".gz"),
+		DEFLATE(".deflate");
+
+		private final String extension;
+
+		Format(String extension) {
+			this.extension = extension;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+	}
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Format format;
+
+	private final TimedDeflater deflater;
+
+	/**
+	 * @param format Formato (gzip ou deflate/zlib)
+	 * @param level  Nível de compressão (0 a 9, ou -1 para o padrão)
+	 */
+	public CompressedOutput(Format format, int level) {
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+			throw new IllegalArgumentException("Nível de compressão inválido: " + level);
+
+		this.format = format;
+		// O gzip usa deflate sem o cabeçalho zlib
+		this.deflater = new TimedDeflater(level, format == Format.GZIP);
+	}
+
+	public Format getFormat() {
+		return format;
+	}
+
+	/**
+	 * Cria o fluxo que comprime tudo o que for escrito e repassa para o destino.
+	 * Fechar o fluxo retornado termina a compressão e fecha o destino.
+	 *
+	 * @param target Destino dos bytes comprimidos
+	 * @return Fluxo de compressão
+	 * @throws IOException Em caso de erro ao escrever o cabeçalho
+	 */
+	public OutputStream open(OutputStream target) throws IOException {
+		if (format == Format.GZIP)
+			return new TimedGZIPOutputStream(target, deflater);
+
+		return new DeflaterOutputStream(target, deflater, BUFFER_SIZE) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					def.end();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Tempo gasto dentro do compressor, em nanossegundos
+	 */
+	public long getCompressionNanos() {
+		return deflater.nanos;
+	}
+
+	/**
+	 * Bytes recebidos pelo compressor
+	 */
+	public long getInputBytes() {
+		return deflater.ended ? deflater.inputBytes : deflater.getBytesRead();
+	}
+
+	/**
+	 * Bytes comprimidos gerados pelo compressor (sem cabeçalho e rodapé do gzip)
+	 */
+	public long getOutputBytes() {
+		return deflater.ended ? deflater.outputBytes : deflater.getBytesWritten();
+	}
+
+	/**
+	 * Cria um fluxo que escreve os mesmos bytes em dois destinos,
+	 * para gerar o arquivo comprimido junto com o arquivo normal
+	 *
+	 * @param first  Primeiro destino
+	 * @param second Segundo destino
+	 * @return Fluxo duplicado
+	 */
+	public static OutputStream tee(OutputStream first, OutputStream second) {
+		return new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				first.write(b);
+				second.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				first.write(b, off, len);
+				second.write(b, off, len);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				first.flush();
+				second.flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				try {
+					first.close();
+				} finally {
+					second.close();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Deflater que acumula o tempo de compressão e guarda os totais antes de ser liberado
+	 */
+	private static class TimedDeflater extends Deflater {
+		private long nanos;
+		private long inputBytes;
+		private long outputBytes;
+		private boolean ended;
+
+		TimedDeflater(int level, boolean nowrap) {
+			super(level, nowrap);
+		}
+
+		@Override
+		public int deflate(byte[] output, int off, int len, int flush) {
+			var start = System.nanoTime();
+			var count = super.deflate(output, off, len, flush);
+			nanos += System.nanoTime() - start;
+			return count;
+		}
+
+		@Override
+		public void end() {
+			if (!ended) {
+				inputBytes = getBytesRead();
+				outputBytes = getBytesWritten();
+				ended = true;
+			}
+			super.end();
+		}
+	}
+
+	/**
+	 * GZIPOutputStream não aceita um Deflater externo; troca o padrão pelo Deflater medido
+	 */
+	private static class TimedGZIPOutputStream extends GZIPOutputStream {
+		TimedGZIPOutputStream(OutputStream out, Deflater deflater) throws IOException {
+			super(out, BUFFER_SIZE);
+			this.def.end();
+			this.def = deflater;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.learningcurve.compiler;
+
+import java.util.Arrays;
+
+/**
+ * Pilha de contextos do analisador sintático, armazenada num array.
+ * O topo da pilha é o contexto atual.
+ */
+public class ContextStack {
+
+	private Context[] items = new Context[8];
+
+	private int size = 0;
+
+	public void push(Context context) {
+		if (size == items.length)
+			items = Arrays.copyOf(items, size * 2);
+
+		items[size++] = context;
+	}
+
+	/**
+	 * Remove o contexto do topo
+	 *
+	 * @return Contexto removido ou nulo, se a pilha estiver vazia
+	 */
+	public Context pop() {
+		return size == 0 ? null : items[--size];
+	}
+
+	/**
+	 * Consulta o contexto do topo sem removê-lo
+	 *
+	 * @return Contexto atual ou nulo, se a pilha estiver vazia
+	 */
+	public Context peek() {
+		return size == 0 ? null : items[size - 1];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+}
@@ -19,4 +19,17 @@ public class DefaultErrorListener implements ErrorListener {
 	public void semanticError(String errorMsg) {
 		System.err.printf("Erro: %s", errorMsg);
 	}
+
+	@Override
+	public void semanticError(final String errorMsg, final String line, final int lineNumber) {
+		System.err.printf("Erro na linha %d: %s\n", lineNumber, errorMsg);
+
+		if (line != null)
+			System.err.printf("(%s)\n", line);
+	}
+
+	@Override
+	public void semanticWarning(final String warningMsg, final String line, final int lineNumber) {
+		System.err.printf("Aviso na linha %d: %s\n", lineNumber, warningMsg);
+	}
 }
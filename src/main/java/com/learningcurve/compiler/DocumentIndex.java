@@ -0,0 +1,85 @@
+package com.learningcurve.compiler;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido de um documento: para cada termo, os campos em que aparece e quantas vezes
+ */
+public class DocumentIndex {
+
+	// Campos do documento, combinados numa máscara de bits
+	public static final int FIELD_HEADER = 1;
+	public static final int FIELD_CONCEPT = 2;
+	public static final int FIELD_TEXT = 4;
+	public static final int FIELD_QUESTION = 8;
+
+	private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	// Termos menores são ignorados (artigos, preposições...)
+	private static final int MIN_TERM_LENGTH = 2;
+
+	private final String document;
+
+	// Termo -> {campos, frequência}
+	private final Map<String, int[]> terms = new HashMap<>();
+
+	/**
+	 * @param document Nome do documento (por exemplo, o arquivo gerado)
+	 */
+	public DocumentIndex(String document) {
+		this.document = document;
+	}
+
+	public String getDocument() {
+		return document;
+	}
+
+	/**
+	 * Acrescenta os termos de um texto sem marcação
+	 *
+	 * @param text  Texto
+	 * @param field Campo de onde o texto veio
+	 */
+	public void add(String text, int field) {
+		for (var term : terms(text)) {
+			var entry = terms.computeIfAbsent(term, key -> new int[2]);
+			entry[0] |= field;
+			entry[1]++;
+		}
+	}
+
+	/**
+	 * Retorna os termos do documento: termo -> {campos, frequência}
+	 */
+	public Map<String, int[]> getTerms() {
+		return Collections.unmodifiableMap(terms);
+	}
+
+	/**
+	 * Divide o texto em termos normalizados: minúsculas, sem acentos e sem pontuação.
+	 * As buscas usam a mesma normalização.
+	 *
+	 * @param text Texto
+	 * @return Termos, na ordem do texto
+	 */
+	public static List<String> terms(String text) {
+		var normalized = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+				.toLowerCase(Locale.ROOT);
+		var result = new ArrayList<String>();
+
+		for (var term : SEPARATORS.split(normalized)) {
+			if (term.length() >= MIN_TERM_LENGTH)
+				result.add(term);
+		}
+
+		return result;
+	}
+}
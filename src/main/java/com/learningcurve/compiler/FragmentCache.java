@@ -0,0 +1,150 @@
+package com.learningcurve.compiler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache dos arquivos incluídos com #include, já analisados.
+ * Compartilhado entre as compilações de um lote, faz com que um fragmento usado por muitas lições
+ * seja lido e classificado uma única vez. Um fragmento é analisado de novo quando o seu conteúdo,
+ * ou o de um arquivo que ele inclui, muda. O checksum de cada arquivo só é recalculado quando o
+ * seu tamanho ou a sua data de modificação mudam.
+ */
+public class FragmentCache {
+
+	/**
+	 * Um arquivo incluído, já analisado
+	 *
+	 * @param tokens       Tokens do arquivo, com as inclusões internas já inseridas e o número da linha
+	 *                     no arquivo de origem
+	 * @param lines        Linha do programa que originou cada token
+	 * @param files        Arquivo de origem de cada token: o próprio arquivo ou um dos que ele inclui
+	 * @param errors       Erros sintáticos do arquivo e dos que ele inclui
+	 * @param dependencies Checksum do arquivo e de cada arquivo que ele inclui
+	 */
+	public record Fragment(List<TokenNode> tokens, List<String> lines, List<Path> files, List<Diagnostic> errors,
+						   Map<Path, Long> dependencies) {
+	}
+
+	/**
+	 * Erro sintático de um arquivo incluído, com a linha no arquivo de origem
+	 *
+	 * @param error Mensagem, linha e número da linha
+	 * @param file  Arquivo de origem
+	 */
+	public record Diagnostic(Error error, Path file) {
+	}
+
+	/**
+	 * Analisa um arquivo incluído que não está no cache
+	 */
+	@FunctionalInterface
+	public interface Loader {
+		Fragment load(Path path, long checksum) throws IOException;
+	}
+
+	/**
+	 * Checksum de um arquivo, válido enquanto o tamanho e a data de modificação forem os mesmos
+	 */
+	private record Stamp(long size, FileTime modified, long checksum) {
+	}
+
+	private final Map<Path, Fragment> fragments = new ConcurrentHashMap<>();
+
+	private final Map<Path, Stamp> stamps = new ConcurrentHashMap<>();
+
+	private final AtomicInteger hits = new AtomicInteger();
+
+	private final AtomicInteger misses = new AtomicInteger();
+
+	/**
+	 * Retorna o fragmento do cache ou, se ele não existir ou estiver desatualizado, analisa o arquivo
+	 *
+	 * @param path   Caminho absoluto do arquivo
+	 * @param loader Analisa o arquivo
+	 * @return Fragmento
+	 * @throws IOException Se o arquivo não puder ser lido
+	 */
+	public Fragment get(Path path, Loader loader) throws IOException {
+		var checksum = checksum(path);
+		var cached = fragments.get(path);
+
+		if (cached != null && Long.valueOf(checksum).equals(cached.dependencies().get(path)) && unchanged(cached, path)) {
+			hits.incrementAndGet();
+			return cached;
+		}
+
+		misses.incrementAndGet();
+
+		var fragment = loader.load(path, checksum);
+		fragments.put(path, fragment);
+
+		return fragment;
+	}
+
+	/**
+	 * Confere se os arquivos incluídos pelo fragmento não mudaram
+	 */
+	private boolean unchanged(Fragment fragment, Path self) {
+		for (var dependency : fragment.dependencies().entrySet()) {
+			if (dependency.getKey().equals(self))
+				continue;
+
+			try {
+				if (checksum(dependency.getKey()) != dependency.getValue())
+					return false;
+			} catch (IOException e) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checksum do arquivo, relido somente se o tamanho ou a data de modificação mudaram desde o último cálculo
+	 */
+	private long checksum(Path path) throws IOException {
+		// Os atributos são lidos antes do conteúdo: uma alteração no meio da leitura força um novo cálculo
+		var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		var stamp = stamps.get(path);
+
+		if (stamp != null && stamp.size() == attributes.size()
+				&& stamp.modified().equals(attributes.lastModifiedTime()))
+			return stamp.checksum();
+
+		var checksum = TokenCache.checksum(path);
+		stamps.put(path, new Stamp(attributes.size(), attributes.lastModifiedTime(), checksum));
+
+		return checksum;
+	}
+
+	/**
+	 * Esquece os fragmentos em cache
+	 */
+	public void clear() {
+		fragments.clear();
+		stamps.clear();
+	}
+
+	/**
+	 * Quantidade de inclusões atendidas pelo cache
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Quantidade de inclusões que precisaram analisar o arquivo
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+}
@@ -1,14 +1,70 @@
 package com.learningcurve.compiler;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.learningcurve.compiler.adapter.ErrorListener;
-import com.learningcurve.compiler.adapter.Translator;
-
-public class HTMLTranslator implements Translator {
+import com.learningcurve.compiler.adapter.PageOutput;
+import com.learningcurve.compiler.adapter.StreamingTranslator;
+import com.learningcurve.compiler.metrics.LineProfiler;
+import com.learningcurve.compiler.metrics.SlowLineEvent;
+
+public class HTMLTranslator implements StreamingTranslator {
+
+	// Estilo compartilhado pelas tabelas com borda
+	private static final String TABLE_BORDER_STYLE = ".content_table_border, .content_table_border th, "
+			+ ".content_table_border td {border: 1px solid black; border-collapse: collapse; padding:3px;}";
+
+	// Função compartilhada que confere a resposta de uma questão
+	private static final String CHECK_ANSWER_SCRIPT = """
+			function checkAnswer(rg) {
+			let answers= document.getElementsByName(rg);
+			for (let i=0; i<answers.length; i++) if (answers[i].checked && answers[i].value==="*") { alert("Resposta correta!"); return; }
+			alert("Resposta incorreta :-(");
+			}""";
+
+	// Troca a miniatura de um vídeo do YouTube pelo player, somente quando o usuário clica nela
+	private static final String LOAD_VIDEO_SCRIPT = """
+			function loadVideo(placeholder) {
+			let frame = document.createElement("iframe");
+			frame.src = placeholder.dataset.src + (placeholder.dataset.src.includes("?") ? "&" : "?") + "autoplay=1";
+			frame.allow = "autoplay; encrypted-media; picture-in-picture"; frame.allowFullscreen = true;
+			if (placeholder.dataset.width) { frame.width = placeholder.dataset.width; frame.height = placeholder.dataset.height; }
+			placeholder.replaceWith(frame);
+			}""";
+
+	// Miniatura e botão de play do vídeo ainda não carregado
+	private static final String VIDEO_PLACEHOLDER_STYLE = ".content_video_placeholder {position:relative; padding:0; "
+			+ "border:0; background:#000; cursor:pointer; min-width:320px; min-height:180px;} "
+			+ ".content_video_placeholder img {width:100%; height:100%; object-fit:cover; opacity:0.8;} "
+			+ ".content_video_placeholder span {position:absolute; top:50%; left:50%; transform:translate(-50%,-50%); "
+			+ "color:#fff; font-size:48px;}";
+
+	// Carrega as páginas do documento dividido quando chegam perto da área visível ou quando o sumário é usado
+	private static final String PAGE_LOADER_SCRIPT = """
+			function loadPage(section) {
+			if (section.dataset.loaded) return Promise.resolve();
+			section.dataset.loaded = "1";
+			return fetch(section.dataset.src).then(r => r.text()).then(html => {
+			section.innerHTML = new DOMParser().parseFromString(html, "text/html").body.innerHTML; });
+			}
+			document.addEventListener("DOMContentLoaded", () => {
+			let observer = new IntersectionObserver(entries => entries.forEach(e => {
+			if (e.isIntersecting) { observer.unobserve(e.target); loadPage(e.target); } }), { rootMargin: "200px" });
+			document.querySelectorAll("section[data-src]").forEach(s => observer.observe(s));
+			document.querySelectorAll("a[data-section]").forEach(a => a.addEventListener("click", ev => {
+			let section = document.getElementById(a.dataset.section);
+			ev.preventDefault(); loadPage(section).then(() => section.scrollIntoView()); }));
+			});""";
 
 	private PrintStream out;
 	private int errorCounter = 0;
@@ -29,6 +85,61 @@ public class HTMLTranslator implements Translator {
 	private List<String> tableAlignment;
 	private List<MarkingLanguage> m;
 
+	// Buffer reaproveitado para montar trechos escapados antes de escrever na saída
+	private final StringBuilder buffer = new StringBuilder();
+
+	// Código em <pre><code>, preservando espaços e TABs, em vez de &nbsp; e <br> por linha
+	private boolean compactCode = false;
+	private int codeLineCounter = 0;
+
+	// Realce de sintaxe dos blocos #code com linguagem conhecida
+	private SyntaxHighlighter highlighter = SyntaxHighlighter.shared();
+	private String codeLanguage = null;
+	private final StringBuilder codeBlock = new StringBuilder();
+	private boolean highlightStyleEmitted = false;
+
+	// Modo minificado: sem quebras de linha, aspas e ids desnecessários e sem <br> entre blocos
+	private boolean minify = false;
+	private long bytesSaved = 0;
+	private LineBreakFilter lineBreakFilter = null;
+
+	// Estilos e scripts emitidos uma única vez no <head>, em vez de repetidos em cada tabela e questão
+	private boolean sharedAssets = false;
+	private final Set<String> styles = new LinkedHashSet<>();
+	private final Set<String> scripts = new LinkedHashSet<>();
+
+	// Mídia sob demanda: imagens com loading=lazy e vídeos do YouTube como miniatura até o clique.
+	// As primeiras 'eagerMedia' imagens e vídeos do documento continuam sendo carregadas de imediato.
+	private boolean lazyMedia = false;
+	private int eagerMedia = 0;
+	private int mediaCounter = 0;
+	private boolean videoScriptEmitted = false;
+	private boolean lazyVideoUsed = false;
+
+	// Dimensões das imagens locais, lidas do cabeçalho dos arquivos (relativos à pasta da saída)
+	private ImageMetadataCache imageMetadata = null;
+	private Path imageFolder = null;
+
+	// Divisão em páginas: cada HEADER1 começa uma página e a saída principal recebe o índice (sumário),
+	// que carrega as páginas sob demanda. Os contadores de ids continuam valendo para o documento todo.
+	private PageOutput pageOutput = null;
+	private String pageBaseName;
+	private final List<String> pageTitles = new ArrayList<>();
+	private ByteArrayOutputStream pageBody = null;
+	private final Set<String> documentStyles = new LinkedHashSet<>();
+	private final Set<String> documentScripts = new LinkedHashSet<>();
+	private ErrorListener errorListener;
+
+	// Token sendo traduzido, para identificar a linha nos eventos do JFR
+	private TokenNode currentToken;
+
+	// Saída do documento e buffer do corpo (recursos compartilhados ou divisão em páginas) da tradução atual
+	private PrintStream document;
+	private ByteArrayOutputStream body;
+
+	// Perfil por linha (nulo: sem perfil)
+	private LineProfiler profiler = null;
+
 	public HTMLTranslator() {
 		m = new ArrayList<>();
 		m.add(new MarkingLanguage(MarkingTypes.BOLD, "(.*)\\*\\*(.+)\\*\\*(.*)"));
@@ -42,20 +153,193 @@ public class HTMLTranslator implements Translator {
 
 	}
 
+	/**
+	 * Liga o modo compacto para blocos de código: o texto vai escapado, sem conversão de espaços,
+	 * dentro de &lt;pre&gt;&lt;code&gt;, e a largura do TAB é definida por CSS
+	 *
+	 * @param compactCode V para usar &lt;pre&gt;&lt;code&gt;
+	 */
+	public void setCompactCode(boolean compactCode) {
+		this.compactCode = compactCode;
+	}
+
+	/**
+	 * Define o realçador de sintaxe usado nos blocos #code com linguagem
+	 *
+	 * @param highlighter Realçador (por padrão, o compartilhado)
+	 */
+	public void setHighlighter(SyntaxHighlighter highlighter) {
+		this.highlighter = highlighter;
+	}
+
+	/**
+	 * Liga o modo minificado. A saída é reduzida enquanto é escrita, sem uma passada extra sobre o HTML:
+	 * sem quebras de linha entre elementos, sem aspas nos atributos gerados, sem os ids que não servem
+	 * de âncora e sem os &lt;br&gt; que separam imagens, vídeos e tabelas.
+	 *
+	 * @param minify V para minificar
+	 */
+	public void setMinify(boolean minify) {
+		this.minify = minify;
+	}
+
+	/**
+	 * Bytes economizados pela minificação no último documento traduzido
+	 *
+	 * @return Quantidade de bytes que o modo normal teria escrito a mais
+	 */
+	public long getBytesSaved() {
+		return this.bytesSaved + (this.lineBreakFilter == null ? 0 : this.lineBreakFilter.dropped);
+	}
+
+	/**
+	 * Liga o modo de recursos compartilhados: o corpo do documento é montado primeiro e os estilos e
+	 * scripts que ele usa são emitidos uma única vez no &lt;head&gt;. Tabelas com borda usam a classe
+	 * content_table_border e as questões chamam checkAnswer(grupo).
+	 *
+	 * @param sharedAssets V para compartilhar estilos e scripts
+	 */
+	public void setSharedAssets(boolean sharedAssets) {
+		this.sharedAssets = sharedAssets;
+	}
+
+	/**
+	 * Define o perfil que recebe o tempo e a memória alocada na tradução de cada linha
+	 *
+	 * @param profiler Perfil ou nulo, para não medir
+	 */
+	public void setProfiler(LineProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	/**
+	 * Liga o modo de mídia sob demanda: as imagens recebem loading="lazy" e decoding="async",
+	 * os vídeos comuns preload="none" e os vídeos do YouTube viram uma miniatura que só cria
+	 * o player quando clicada
+	 *
+	 * @param lazyMedia V para carregar a mídia sob demanda
+	 */
+	public void setLazyMedia(boolean lazyMedia) {
+		this.lazyMedia = lazyMedia;
+	}
+
+	/**
+	 * Define quantas imagens e vídeos, do início do documento, são carregados de imediato
+	 * no modo de mídia sob demanda (normalmente os que aparecem sem rolar a página)
+	 *
+	 * @param eagerMedia Quantidade de itens carregados de imediato
+	 */
+	public void setEagerMedia(int eagerMedia) {
+		this.eagerMedia = eagerMedia;
+	}
+
+	/**
+	 * Liga a leitura das dimensões das imagens locais. Sem largura e altura no #img, as dimensões
+	 * do arquivo são emitidas (width e height), evitando que a página mude de layout ao carregar a imagem.
+	 * Com largura e altura, um aviso é emitido se a proporção não for a do arquivo.
+	 *
+	 * @param imageMetadata Cache das dimensões (nulo desliga a leitura)
+	 * @param imageFolder   Pasta usada para resolver os endereços relativos (normalmente, a pasta da saída)
+	 */
+	public void setImageMetadata(ImageMetadataCache imageMetadata, Path imageFolder) {
+		this.imageMetadata = imageMetadata;
+		this.imageFolder = imageFolder;
+	}
+
+	/**
+	 * Dimensões de uma imagem local ou nulo, para endereços remotos e arquivos não encontrados
+	 */
+	private int[] localImageDimensions(String src) {
+		if (this.imageMetadata == null || src.startsWith("//") || src.startsWith("data:")
+				|| src.matches("^[a-zA-Z][a-zA-Z0-9+.-]*:.*"))
+			return null;
+
+		try {
+			// Sem a consulta e o fragmento do endereço
+			var path = src.replaceFirst("[?#].*$", "");
+			return this.imageMetadata.dimensions(this.imageFolder == null ? Path.of(path) : this.imageFolder.resolve(path));
+		} catch (InvalidPathException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Indica se o próximo item de mídia deve ser carregado sob demanda
+	 */
+	private boolean nextMediaIsLazy() {
+		return this.lazyMedia && ++this.mediaCounter > this.eagerMedia;
+	}
+
+	/**
+	 * Liga a divisão do documento em páginas, uma por HEADER1, durante a tradução.
+	 * As páginas são gravadas em &lt;baseName&gt;-1.html, &lt;baseName&gt;-2.html... e a saída principal
+	 * recebe o índice: o sumário, o conteúdo anterior ao primeiro HEADER1 e uma seção por página,
+	 * carregada quando se aproxima da área visível. Cada página também pode ser aberta sozinha.
+	 *
+	 * @param baseName   Prefixo do nome das páginas
+	 * @param pageOutput Abre a saída de cada página (nulo desliga a divisão)
+	 */
+	public void setSplitPages(String baseName, PageOutput pageOutput) {
+		this.pageBaseName = baseName;
+		this.pageOutput = pageOutput;
+	}
+
+	/**
+	 * Atributo class gerado pelo tradutor (sem aspas no modo minificado)
+	 */
+	private String classAttr(String cssClass) {
+		if (!this.minify)
+			return " class=\"" + cssClass + "\"";
+
+		this.bytesSaved += 2;
+		return " class=" + cssClass;
+	}
+
+	/**
+	 * Atributo id gerado pelo tradutor. No modo minificado, só os ids que servem de âncora
+	 * (cabeçalhos e questões) são mantidos.
+	 */
+	private String idAttr(String id, boolean anchor) {
+		if (!this.minify)
+			return " id=\"" + id + "\"";
+
+		if (!anchor) {
+			this.bytesSaved += id.length() + 6;
+			return "";
+		}
+
+		this.bytesSaved += 2;
+		return " id=" + id;
+	}
+
+	/**
+	 * Separador depois de imagens, vídeos e tabelas
+	 */
+	private void separator() {
+		if (this.minify)
+			this.bytesSaved += "<br>\r\n".length();
+		else
+			this.out.print("<br>\r\n");
+	}
+
 	private void convertH1(String title) {
-		this.out.printf("<h1 class=\"content_h1\" id=\"header%s\">%s</h1>\r\n", ++this.contadorHeader, title);
+		this.out.printf("<h1%s%s>%s</h1>\r\n", classAttr("content_h1"), idAttr("header" + ++this.contadorHeader, true),
+				title);
 	}
 
 	private void convertH2(String title) {
-		this.out.printf("<h2 class=\"content_h2\" id=\"header%s\">%s</h2>\r\n", ++this.contadorHeader, title);
+		this.out.printf("<h2%s%s>%s</h2>\r\n", classAttr("content_h2"), idAttr("header" + ++this.contadorHeader, true),
+				title);
 	}
 
 	private void convertH3(String title) {
-		this.out.printf("<h3 class=\"content_h3\" id=\"header%s\">%s</h3>\r\n", ++this.contadorHeader, title);
+		this.out.printf("<h3%s%s>%s</h3>\r\n", classAttr("content_h3"), idAttr("header" + ++this.contadorHeader, true),
+				title);
 	}
 
 	private void convertBeginConcepts() {
-		this.out.printf("<div class=\"content_concepts\" id=\"concepts%s\">\r\n", ++this.conceptsCounter);
+		this.out.printf("<div%s%s>\r\n", classAttr("content_concepts"),
+				idAttr("concepts" + ++this.conceptsCounter, false));
 	}
 
 	private void converConcept(String concept) {
@@ -67,7 +351,7 @@ public class HTMLTranslator implements Translator {
 	}
 
 	private void convertBeginList() {
-		this.out.printf("<ul  class=\"content_list\" id=\"list%s\">\r\n", ++this.listCounter);
+		this.out.printf("<ul%s%s>\r\n", classAttr("content_list"), idAttr("list" + ++this.listCounter, false));
 	}
 
 	private void converListItem(String item) {
@@ -79,7 +363,8 @@ public class HTMLTranslator implements Translator {
 	}
 
 	private void convertBeginScenario() {
-		this.out.printf("<div class=\"content_scenario\" id=\"scenario%s\">\r\n", ++this.scenarioCounter);
+		this.out.printf("<div%s%s>\r\n", classAttr("content_scenario"),
+				idAttr("scenario" + ++this.scenarioCounter, false));
 		this.stepCounter = 0;
 	}
 
@@ -91,7 +376,14 @@ public class HTMLTranslator implements Translator {
 		this.out.print("</div>\r\n");
 	}
 
-	private String convertMarkingText(String texto) {
+	/**
+	 * Converte a marcação inline (negrito, itálico, links...) de um texto já escapado.
+	 * Visível no pacote para os benchmarks.
+	 */
+	String convertMarkingText(String texto) {
+		var slowLine = new SlowLineEvent();
+		slowLine.begin();
+
 		String convertedText = texto;
 		for (int i = 0; i < m.size(); i++) {
 			String result = m.get(i).match(convertedText);
@@ -99,33 +391,84 @@ public class HTMLTranslator implements Translator {
 				convertedText = result;
 			}
 		}
+
+		slowLine.end();
+		if (slowLine.shouldCommit() && this.currentToken != null) {
+			slowLine.phase = SlowLineEvent.MARKUP;
+			slowLine.lineNumber = this.currentToken.lineNumber();
+			slowLine.tokenType = this.currentToken.type().name();
+			slowLine.text = texto;
+			slowLine.commit();
+		}
+
 		return convertedText;
 	}
 
-	private void convertImage(String src, String alt, String width, String height) {
-		this.out.printf("<div class=\"content_img\" id=\"img%s\">\r\n<img src=\"%s\"", ++this.imgCounter, src);
+	private void convertImage(String src, String alt, String width, String height, int lineNumber) {
+		this.out.printf("<div%s%s>\r\n<img src=\"%s\"", classAttr("content_img"), idAttr("img" + ++this.imgCounter, false),
+				HtmlEscaper.escape(src));
 
+		// O texto alternativo chega com as aspas do #img
 		if (alt != null) {
-			this.out.printf(" alt=%s", alt);
+			this.out.printf(" alt=\"%s\"", HtmlEscaper.escape(alt.substring(1, alt.length() - 1)));
 		}
 
+		var intrinsic = this.localImageDimensions(src);
+
 		if (width != null && height != null) {
 			this.out.printf(" style=\"width:%spx;height:%spx;\"", width, height);
+
+			// Proporção diferente da imagem (tolerância de 1%); dimensões fora do intervalo de int não são conferidas
+			var w = dimension(width);
+			var h = dimension(height);
+
+			if (intrinsic != null && w >= 0 && h >= 0
+					&& Math.abs((long) w * intrinsic[1] - (long) h * intrinsic[0]) > 0.01 * w * intrinsic[1])
+				this.errorListener.semanticWarning(String.format(
+						"As dimensões da imagem %s (%sx%s) não têm a proporção do arquivo (%dx%d)", src, width, height,
+						intrinsic[0], intrinsic[1]), null, lineNumber);
+		} else if (intrinsic != null) {
+			this.out.printf(" width=\"%d\" height=\"%d\"", intrinsic[0], intrinsic[1]);
+		}
+
+		if (this.nextMediaIsLazy()) {
+			this.out.print(" loading=\"lazy\" decoding=\"async\"");
 		}
 
-		this.out.print(">\r\n</div>\r\n<br>\r\n");
+		this.out.print(">\r\n</div>\r\n");
+		this.separator();
+	}
+
+	/**
+	 * Dimensão da mídia ou -1, se ela não couber num int (o Lexer aceita qualquer quantidade de dígitos)
+	 */
+	private static int dimension(String value) {
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
 	}
 
 	private void convertVideo(String src, String width, String height) {
 		String size = null;
-		String base = "<div class=\"content_video\" id=\"" + "video" + ++this.videoCounter + "\">\r\n";
+		String base = "<div" + classAttr("content_video") + idAttr("video" + ++this.videoCounter, false) + ">\r\n";
 		boolean isYoutubeVideo = src.contains("youtube");
+		boolean lazy = this.nextMediaIsLazy();
 		if (width != null && height != null) {
 			size = " width=\"" + width + "\" height=\"" + height + "\"";
 		}
 
+		if (isYoutubeVideo && lazy) {
+			this.out.print(base);
+			this.convertVideoPlaceholder(src, width, height);
+			return;
+		}
+
 		if (isYoutubeVideo) {
 			base += "<iframe";
+		} else if (lazy) {
+			base += "<video controls preload=\"none\"";
 		} else {
 			base += "<video controls";
 		}
@@ -137,14 +480,51 @@ public class HTMLTranslator implements Translator {
 		this.out.print(base);
 
 		if (isYoutubeVideo) {
-			this.out.printf(" src=\"%s\"></iframe>\r\n</div>\r\n", src);
+			this.out.printf(" src=\"%s\"></iframe>\r\n</div>\r\n", HtmlEscaper.escape(src));
 		} else {
-			this.out.printf(">\r\n<source src=\"%s\"/>\r\n</video>\r\n</div>\r\n<br>\r\n", src);
+			this.out.printf(">\r\n<source src=\"%s\"/>\r\n</video>\r\n</div>\r\n", HtmlEscaper.escape(src));
+			this.separator();
 		}
 	}
 
+	/**
+	 * Miniatura do vídeo do YouTube, trocada pelo player (iframe) no clique
+	 */
+	private void convertVideoPlaceholder(String src, String width, String height) {
+		this.lazyVideoUsed = true;
+
+		// O script e o estilo são emitidos uma única vez: no <head> ou antes da primeira miniatura
+		if (this.sharedAssets) {
+			this.styles.add(VIDEO_PLACEHOLDER_STYLE);
+			this.scripts.add(LOAD_VIDEO_SCRIPT);
+		} else if (!this.videoScriptEmitted) {
+			this.out.printf("<style>%s</style>\r\n<script>%s</script>\r\n", VIDEO_PLACEHOLDER_STYLE,
+					LOAD_VIDEO_SCRIPT);
+			this.videoScriptEmitted = true;
+		}
+
+		this.out.printf("<button type=\"button\"%s data-src=\"%s\"", classAttr("content_video_placeholder"),
+				HtmlEscaper.escape(src));
+
+		if (width != null && height != null) {
+			this.out.printf(" data-width=\"%s\" data-height=\"%s\" style=\"width:%spx;height:%spx;\"", width, height,
+					width, height);
+		}
+
+		this.out.print(" onclick=\"loadVideo(this)\" aria-label=\"Reproduzir vídeo\">");
+
+		// Miniatura do YouTube para os endereços .../embed/<id>
+		var id = src.replaceFirst("^.*/embed/([\\w-]+).*$", "$1");
+
+		if (!id.equals(src))
+			this.out.printf("<img src=\"https://i.ytimg.com/vi/%s/hqdefault.jpg\" alt=\"\" loading=\"lazy\" "
+					+ "decoding=\"async\">", id);
+
+		this.out.print("<span>&#9654;</span></button>\r\n</div>\r\n");
+	}
+
 	private void convertBeginParagraph() {
-		this.out.printf("<p class=\"content_p\" id=\"p%s\">", ++this.paragraphCounter);
+		this.out.printf("<p%s%s>", classAttr("content_p"), idAttr("p" + ++this.paragraphCounter, false));
 	}
 
 	private void convertText(String text) {
@@ -165,19 +545,65 @@ public class HTMLTranslator implements Translator {
 		this.out.print("<br>\r\n");
 	}
 
-	private void convertBeginCode() {
-		this.out.printf("<div class=\"content_code\" id=\"code%s\">\r\n<code>\r\n", ++this.codeCounter);
+	private void convertBeginCode(String language) {
+		this.codeLineCounter = 0;
+		this.codeLanguage = this.highlighter.supports(language) ? language : null;
+		this.codeBlock.setLength(0);
+
+		// O estilo do realce é emitido uma única vez: no <head> ou antes do primeiro bloco realçado
+		if (this.codeLanguage != null && this.sharedAssets) {
+			this.styles.add(SyntaxHighlighter.STYLE);
+		} else if (this.codeLanguage != null && !this.highlightStyleEmitted) {
+			this.out.printf("<style>%s</style>\r\n", SyntaxHighlighter.STYLE);
+			this.highlightStyleEmitted = true;
+		}
+
+		String codeTag = language == null ? "<code>" : "<code class=\"language-" + language + "\">";
+
+		String codeDiv = "<div" + classAttr("content_code") + idAttr("code" + ++this.codeCounter, false) + ">";
+
+		if (this.compactCode)
+			this.out.printf("%s\r\n<pre style=\"tab-size:3\">%s", codeDiv, codeTag);
+		else
+			this.out.printf("%s\r\n%s\r\n", codeDiv, codeTag);
 	}
 
 	private void convertCode(String code) {
-		String ignoreSpaces = "&nbsp;";
-		String convertedCode = code.replace("\t", ignoreSpaces + ignoreSpaces + ignoreSpaces);
-		convertedCode = convertedCode.replace(" ", ignoreSpaces);
-		this.out.printf("%s<br>\r\n", convertedCode);
+		// Com realce, o bloco é acumulado e convertido inteiro no fim (comentários podem ocupar várias linhas)
+		if (this.codeLanguage != null) {
+			if (this.codeLineCounter++ > 0)
+				this.codeBlock.append('\n');
+
+			this.codeBlock.append(code);
+			return;
+		}
+
+		this.buffer.setLength(0);
+
+		if (this.compactCode) {
+			// No <pre> a quebra de linha é o próprio separador; não há quebra depois da última linha
+			if (this.codeLineCounter++ > 0)
+				this.buffer.append('\n');
+
+			HtmlEscaper.escape(code, this.buffer);
+		} else {
+			HtmlEscaper.escapeCode(code, this.buffer);
+			this.buffer.append("<br>\r\n");
+		}
+
+		this.out.append(this.buffer);
 	}
 
 	private void convertEndCode() {
-		this.out.print("</code>\r\n</div>\r\n");
+		if (this.codeLanguage != null && this.codeLineCounter > 0)
+			this.out.print(this.highlighter.highlight(this.codeLanguage, this.codeBlock.toString(), this.compactCode));
+
+		this.codeLanguage = null;
+
+		if (this.compactCode)
+			this.out.print("</code></pre>\r\n</div>\r\n");
+		else
+			this.out.print("</code>\r\n</div>\r\n");
 	}
 
 	private void convertBeginQuestion(String check) {
@@ -185,7 +611,7 @@ public class HTMLTranslator implements Translator {
 		this.optionCounter = 0;
 		this.contentCheckFunction = check.isEmpty() ? null : check;
 
-		this.out.printf("<div class=\"content_question\" id=\"question%s\">\r\n", this.questionCounter);
+		this.out.printf("<div%s%s>\r\n", classAttr("content_question"), idAttr("question" + this.questionCounter, true));
 	}
 
 	private void convertAnswer(String option, String isCorrect) {
@@ -194,7 +620,7 @@ public class HTMLTranslator implements Translator {
 		String optionName = "a" + ++this.optionCounter;
 		String optionValue = " ";
 
-		if (isCorrect != "") {
+		if (!isCorrect.isEmpty()) {
 			optionValue = isCorrect;
 		}
 
@@ -210,7 +636,10 @@ public class HTMLTranslator implements Translator {
 	private void convertEndQuestion() {
 		out.printf("<br><button ");
 
-		if (contentCheckFunction == null)
+		if (contentCheckFunction == null && sharedAssets) {
+			scripts.add(CHECK_ANSWER_SCRIPT);
+			out.printf("onclick='checkAnswer(\"q%d\")'", questionCounter);
+		} else if (contentCheckFunction == null)
 			out.printf(
 					"""
 							onclick='(function (rg) {
@@ -230,6 +659,12 @@ public class HTMLTranslator implements Translator {
 		String tableStyle = "<style>%s, %s th, %s td {border: 1px solid black; border-collapse: collapse; padding:3px;}</style>\r\n";
 		this.tableRowCounter = 0;
 
+		if (border != null && this.sharedAssets) {
+			this.styles.add(TABLE_BORDER_STYLE);
+			this.out.printf("<table class='content_table content_table_border' id='%s'>\r\n", tableName);
+			return;
+		}
+
 		if (border != null)
 			this.out.printf(tableStyle, "#" + tableName, "#" + tableName, "#" + tableName);
 
@@ -253,11 +688,13 @@ public class HTMLTranslator implements Translator {
 					String cellAlignment = "left";
 					if (firstCharacter == '>' || firstCharacter == '=' || firstCharacter == '<') {
 						cellValue = cellValue.substring(1, cellValue.length());
-						cellValue = this.convertMarkingText(cellValue);
+						cellValue = this.convertMarkingText(HtmlEscaper.escape(cellValue));
 						if (firstCharacter == '>') {
 							cellAlignment = "right";
 						} else if (firstCharacter == '=')
 							cellAlignment = "center";
+					} else {
+						cellValue = HtmlEscaper.escape(cellValue);
 					}
 					this.tableAlignment.add(cellAlignment);
 					this.out.printf("<th align='center'>%s</th>\r\n", cellValue);
@@ -269,7 +706,7 @@ public class HTMLTranslator implements Translator {
 				cell = row.get("cell" + indexCell);
 				if (cell != null) {
 					cellValue = cell.left().trim();
-					cellValue = this.convertMarkingText(cellValue);
+					cellValue = this.convertMarkingText(HtmlEscaper.escape(cellValue));
 					this.out.printf("<td align='%s'>%s</td>\r\n", tableAlignment.get(indexCell - 1), cellValue);
 					indexCell++;
 				}
@@ -279,143 +716,404 @@ public class HTMLTranslator implements Translator {
 	}
 
 	private void convertEndTable() {
-		this.out.print("</table>\r\n<br>\r\n");
+		this.out.print("</table>\r\n");
+		this.separator();
 	}
 
 	@Override
 	public int translate(List<TokenNode> syntax, PrintStream out, ErrorListener errorListener) {
-		this.out = out;
-		String textContent = "";
-
-		this.out.print("<!DOCTYPE html>\r\n<html>\r\n<body>\r\n");
+		this.begin(out, errorListener);
 
 		for (int i = 0; i < syntax.size(); i++) {
 			if (this.errorCounter > 0) {
 				break;
 			}
-			switch (syntax.get(i).type()) {
-				case HEADER1:
-					this.convertH1(syntax.get(i).params().get("title").left());
-					break;
-				case HEADER2:
-					this.convertH2(syntax.get(i).params().get("title").left());
-					break;
-				case HEADER3:
-					this.convertH3(syntax.get(i).params().get("title").left());
-					break;
-				case BEGIN_CONCEPTS:
-					this.convertBeginConcepts();
-					break;
-				case CONCEPT:
-					textContent = syntax.get(i).params().get("concept").left();
-					textContent = this.convertMarkingText(textContent);
-					this.converConcept(textContent);
-					break;
-				case END_CONCEPTS:
-					this.convertEndConcepts();
-					break;
-
-				case BEGIN_LIST:
-					this.convertBeginList();
-					break;
-				case LIST_ITEM:
-					textContent = syntax.get(i).params().get("item").left();
-					textContent = this.convertMarkingText(textContent);
-					this.converListItem(textContent);
-					break;
-				case END_LIST:
-					this.convertEndList();
-					break;
-
-				case IMAGE:
-					this.convertImage(
-							syntax.get(i).params().get("url").left(),
-							syntax.get(i).params().get("alt").left(),
-							syntax.get(i).params().get("width").left(),
-							syntax.get(i).params().get("height").left());
-					break;
-
-				case VIDEO:
-					this.convertVideo(
-							syntax.get(i).params().get("url").left(),
-							syntax.get(i).params().get("width").left(),
-							syntax.get(i).params().get("height").left());
-					break;
-
-				case BEGIN_SCENARIO:
-					this.convertBeginScenario();
-					;
-					break;
-				case STEP:
-					textContent = syntax.get(i).params().get("step").left();
-					textContent = this.convertMarkingText(textContent);
-					this.convertStep(textContent);
-					break;
-				case END_SCENARIO:
-					this.convertEndScenario();
-					break;
-
-				case BEGIN_PARAGRAPH:
-					this.convertBeginParagraph();
-					break;
-				case TEXT:
-					textContent = syntax.get(i).params().get("paragraph").left();
-					textContent = this.convertMarkingText(textContent);
-					this.convertText(textContent);
-					break;
-				case BREAK:
-					this.convertBreak();
-					break;
-				case END_PARAGRAPH:
-					this.convertEndParagraph();
-					break;
-
-				case BEGIN_SOURCE:
-					this.convertBeginCode();
-					break;
-
-				case SOURCE_CODE:
-					this.convertCode(syntax.get(i).params().get("source").left());
-					break;
-
-				case END_SOURCE:
-					this.convertEndCode();
-					break;
-
-				case BEGIN_QUESTION:
-					this.convertBeginQuestion(syntax.get(i).params().get("check").left());
-					break;
-
-				case ANSWER:
-					textContent = syntax.get(i).params().get("option").left();
-					textContent = this.convertMarkingText(textContent);
-					this.convertAnswer(
-							textContent,
-							syntax.get(i).params().get("iscorrect").left());
-					break;
-				case END_QUESTION:
-					this.convertEndQuestion();
-					break;
-
-				case BEGIN_TABLE:
-					this.convertBeginTable(syntax.get(i).params().get("hasborder").left());
-					break;
-
-				case TABLE_ROW:
-					this.convertTableRow(syntax.get(i).params());
-					break;
-
-				case END_TABLE:
-					this.convertEndTable();
-					break;
-
-				default:
-					break;
-			}
+			this.accept(syntax.get(i));
+		}
+
+		return this.end();
+	}
+
+	/**
+	 * Uma tradução dividida em páginas grava cada página no seu arquivo durante a tradução,
+	 * por isso não pode começar antes do fim da análise
+	 */
+	@Override
+	public boolean canStream() {
+		return this.pageOutput == null;
+	}
+
+	@Override
+	public void begin(PrintStream out, ErrorListener errorListener) {
+		this.out = out;
+		this.highlightStyleEmitted = false;
+		this.bytesSaved = 0;
+		this.lineBreakFilter = null;
+
+		this.styles.clear();
+		this.scripts.clear();
+		this.documentStyles.clear();
+		this.documentScripts.clear();
+		this.pageTitles.clear();
+		this.pageBody = null;
+		this.mediaCounter = 0;
+		this.videoScriptEmitted = false;
+		this.lazyVideoUsed = false;
+		this.errorListener = errorListener;
+
+		// No modo minificado as quebras de linha são descartadas à medida que a saída é escrita
+		if (this.minify) {
+			this.lineBreakFilter = new LineBreakFilter(out);
+			this.out = new PrintStream(this.lineBreakFilter);
+		}
+
+		// Com recursos compartilhados, o corpo é montado num buffer para que o <head> saia antes dele.
+		// Na divisão em páginas, o buffer recebe o conteúdo anterior ao primeiro HEADER1.
+		this.document = this.out;
+		this.body = new ByteArrayOutputStream();
+
+		if (this.sharedAssets || this.pageOutput != null)
+			this.out = new PrintStream(this.body);
+		else
+			this.out.print("<!DOCTYPE html>\r\n<html>\r\n<body>\r\n");
+	}
+
+	@Override
+	public void accept(TokenNode token) {
+		if (this.errorCounter > 0) {
+			return;
+		}
+		this.currentToken = token;
+
+		String textContent;
+
+		final long profileStart = this.profiler == null ? 0 : System.nanoTime();
+		final long profileBytes = this.profiler == null ? 0 : LineProfiler.allocatedBytes();
+
+		switch (token.type()) {
+			case HEADER1:
+				textContent = HtmlEscaper.escape(token.params().get("title").left());
+
+				if (this.pageOutput != null)
+					this.startPage(textContent);
+
+				this.convertH1(textContent);
+				break;
+			case HEADER2:
+				this.convertH2(HtmlEscaper.escape(token.params().get("title").left()));
+				break;
+			case HEADER3:
+				this.convertH3(HtmlEscaper.escape(token.params().get("title").left()));
+				break;
+			case BEGIN_CONCEPTS:
+				this.convertBeginConcepts();
+				break;
+			case CONCEPT:
+				textContent = token.params().get("concept").left();
+				textContent = this.convertMarkingText(HtmlEscaper.escape(textContent));
+				this.converConcept(textContent);
+				break;
+			case END_CONCEPTS:
+				this.convertEndConcepts();
+				break;
+
+			case BEGIN_LIST:
+				this.convertBeginList();
+				break;
+			case LIST_ITEM:
+				textContent = token.params().get("item").left();
+				textContent = this.convertMarkingText(HtmlEscaper.escape(textContent));
+				this.converListItem(textContent);
+				break;
+			case END_LIST:
+				this.convertEndList();
+				break;
+
+			case IMAGE:
+				this.convertImage(
+						token.params().get("url").left(),
+						token.params().get("alt").left(),
+						token.params().get("width").left(),
+						token.params().get("height").left(),
+						token.lineNumber());
+				break;
+
+			case VIDEO:
+				this.convertVideo(
+						token.params().get("url").left(),
+						token.params().get("width").left(),
+						token.params().get("height").left());
+				break;
+
+			case BEGIN_SCENARIO:
+				this.convertBeginScenario();
+				;
+				break;
+			case STEP:
+				textContent = token.params().get("step").left();
+				textContent = this.convertMarkingText(HtmlEscaper.escape(textContent));
+				this.convertStep(textContent);
+				break;
+			case END_SCENARIO:
+				this.convertEndScenario();
+				break;
+
+			case BEGIN_PARAGRAPH:
+				this.convertBeginParagraph();
+				break;
+			case TEXT:
+				textContent = token.params().get("paragraph").left();
+				textContent = this.convertMarkingText(HtmlEscaper.escape(textContent));
+				this.convertText(textContent);
+				break;
+			case BREAK:
+				this.convertBreak();
+				break;
+			case END_PARAGRAPH:
+				this.convertEndParagraph();
+				break;
+
+			case BEGIN_SOURCE:
+				this.convertBeginCode(token.params().get("lang").left());
+				break;
+
+			case SOURCE_CODE:
+				this.convertCode(token.params().get("source").left());
+				break;
+
+			case END_SOURCE:
+				this.convertEndCode();
+				break;
+
+			case BEGIN_QUESTION:
+				this.convertBeginQuestion(token.params().get("check").left());
+				break;
+
+			case ANSWER:
+				textContent = token.params().get("option").left();
+				textContent = this.convertMarkingText(HtmlEscaper.escape(textContent));
+				this.convertAnswer(
+						textContent,
+						token.params().get("iscorrect").left());
+				break;
+			case END_QUESTION:
+				this.convertEndQuestion();
+				break;
+
+			case BEGIN_TABLE:
+				this.convertBeginTable(token.params().get("hasborder").left());
+				break;
+
+			case TABLE_ROW:
+				this.convertTableRow(token.params());
+				break;
+
+			case END_TABLE:
+				this.convertEndTable();
+				break;
+
+			default:
+				break;
+		}
+
+		if (this.profiler != null)
+			this.profiler.recordTranslation(this.currentToken.lineNumber(), this.currentToken.type(),
+					System.nanoTime() - profileStart, LineProfiler.allocatedBytes() - profileBytes);
+	}
+
+	@Override
+	public int end() {
+		if (this.pageOutput != null) {
+			this.finishPage();
+			this.out.flush();
+			this.out = this.document;
+			this.printIndexPage(this.body);
+		} else if (this.sharedAssets) {
+			this.out.flush();
+			this.out = this.document;
+			this.printHead(this.styles, this.scripts);
+			this.out.write(this.body.toByteArray(), 0, this.body.size());
 		}
 
 		this.out.print("</body>\r\n</html>");
+		this.out.flush();
+		this.body = null;
 
 		return errorCounter;
 	}
+
+	/**
+	 * Emite o início do documento com os estilos e scripts coletados durante a tradução
+	 */
+	private void printHead(Set<String> styles, Set<String> scripts) {
+		this.out.print("<!DOCTYPE html>\r\n<html>\r\n<head>\r\n");
+
+		if (!styles.isEmpty())
+			this.out.printf("<style>%s</style>\r\n", String.join("\n", styles));
+
+		if (!scripts.isEmpty())
+			this.out.printf("<script>%s</script>\r\n", String.join("\n", scripts));
+
+		this.out.print("</head>\r\n<body>\r\n");
+	}
+
+	private String pageFileName(int page) {
+		return this.pageBaseName + "-" + page + ".html";
+	}
+
+	/**
+	 * Termina a página atual (ou o conteúdo anterior ao primeiro HEADER1) e começa uma nova
+	 *
+	 * @param title Título da página, para o sumário
+	 */
+	private void startPage(String title) {
+		this.out.flush();
+
+		if (this.pageBody != null) {
+			this.finishPage();
+		} else {
+			// Estilos e scripts do conteúdo que fica no índice
+			this.documentStyles.addAll(this.styles);
+			this.documentScripts.addAll(this.scripts);
+			this.styles.clear();
+			this.scripts.clear();
+		}
+
+		this.pageTitles.add(title);
+		this.pageBody = new ByteArrayOutputStream();
+		this.out = new PrintStream(this.pageBody);
+
+		// Cada página pode ser aberta sozinha e precisa do seu próprio estilo de realce e script de vídeo
+		this.highlightStyleEmitted = false;
+		this.videoScriptEmitted = false;
+	}
+
+	/**
+	 * Grava a página atual como um documento completo
+	 */
+	private void finishPage() {
+		if (this.pageBody == null)
+			return;
+
+		this.out.flush();
+
+		final var fileName = this.pageFileName(this.pageTitles.size());
+		final var pageContent = this.out;
+
+		try (final var page = this.pageOutput.open(fileName)) {
+			final var filter = this.minify ? new LineBreakFilter(page) : null;
+			this.out = new PrintStream(filter == null ? page : filter);
+
+			if (this.sharedAssets)
+				this.printHead(this.styles, this.scripts);
+			else
+				this.out.print("<!DOCTYPE html>\r\n<html>\r\n<body>\r\n");
+
+			this.out.write(this.pageBody.toByteArray(), 0, this.pageBody.size());
+			this.out.print("</body>\r\n</html>");
+			this.out.flush();
+
+			if (this.out.checkError())
+				throw new IOException("erro de gravação");
+
+			if (filter != null)
+				this.bytesSaved += filter.dropped;
+		} catch (IOException e) {
+			this.errorListener.semanticError("Erro ao gravar a página " + fileName + ": " + e.getMessage());
+			this.errorCounter++;
+		}
+
+		this.out = pageContent;
+		this.documentStyles.addAll(this.styles);
+		this.documentScripts.addAll(this.scripts);
+		this.styles.clear();
+		this.scripts.clear();
+		this.pageBody = null;
+	}
+
+	/**
+	 * Emite o índice do documento dividido: sumário, conteúdo anterior ao primeiro HEADER1
+	 * e uma seção vazia por página, preenchida pelo script quando for necessária
+	 *
+	 * @param preamble Conteúdo anterior ao primeiro HEADER1
+	 */
+	private void printIndexPage(ByteArrayOutputStream preamble) {
+		this.documentScripts.add(PAGE_LOADER_SCRIPT);
+
+		// Os scripts dentro das páginas carregadas não são executados; o dos vídeos precisa estar no índice
+		if (this.lazyVideoUsed) {
+			this.documentStyles.add(VIDEO_PLACEHOLDER_STYLE);
+			this.documentScripts.add(LOAD_VIDEO_SCRIPT);
+		}
+		this.printHead(this.documentStyles, this.documentScripts);
+
+		this.out.printf("<nav%s>\r\n<ul>\r\n", classAttr("content_toc"));
+
+		for (int page = 1; page <= this.pageTitles.size(); page++) {
+			this.out.printf("<li><a href=\"%s\" data-section=\"page%d\">%s</a></li>\r\n", this.pageFileName(page),
+					page, this.pageTitles.get(page - 1));
+		}
+
+		this.out.print("</ul>\r\n</nav>\r\n");
+		this.out.write(preamble.toByteArray(), 0, preamble.size());
+
+		for (int page = 1; page <= this.pageTitles.size(); page++) {
+			this.out.printf("<section%s%s data-src=\"%s\"></section>\r\n", classAttr("content_page"),
+					idAttr("page" + page, true), this.pageFileName(page));
+		}
+	}
+
+	/**
+	 * Descarta os pares CR LF que separam os elementos, contando os bytes economizados.
+	 * Quebras simples (LF), usadas dentro de &lt;pre&gt; e do JavaScript, são mantidas.
+	 */
+	private static class LineBreakFilter extends OutputStream {
+		private final OutputStream target;
+		private boolean pendingCarriageReturn = false;
+		private long dropped = 0;
+
+		LineBreakFilter(OutputStream target) {
+			this.target = target;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (pendingCarriageReturn) {
+				pendingCarriageReturn = false;
+
+				if (b == '\n') {
+					dropped += 2;
+					return;
+				}
+
+				target.write('\r');
+			}
+
+			if (b == '\r')
+				pendingCarriageReturn = true;
+			else
+				target.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			var runStart = off;
+			var end = off + len;
+
+			for (int i = off; i < end; i++) {
+				if (b[i] == '\r' || pendingCarriageReturn) {
+					target.write(b, runStart, i - runStart);
+					write(b[i]);
+					runStart = i + 1;
+				}
+			}
+
+			target.write(b, runStart, end - runStart);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			target.flush();
+		}
+	}
 }
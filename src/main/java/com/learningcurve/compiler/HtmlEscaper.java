@@ -0,0 +1,109 @@
+package com.learningcurve.compiler;
+
+/**
+ * Escapa texto para HTML numa única passada, escrevendo direto no buffer de saída.
+ * Trechos sem nenhum caractere especial são copiados de uma vez (caminho rápido ASCII).
+ */
+public final class HtmlEscaper {
+
+	// Espaço não separável usado para preservar a indentação do código
+	private static final String NBSP = "&nbsp;";
+
+	// Um TAB vale três espaços no código
+	private static final String TAB = NBSP + NBSP + NBSP;
+
+	// Substituição de cada caractere ASCII no modo texto (nulo = copia o caractere)
+	private static final String[] TEXT = new String[128];
+
+	// Substituição de cada caractere ASCII no modo código (texto + espaços e TABs)
+	private static final String[] CODE = new String[128];
+
+	static {
+		TEXT['<'] = "&lt;";
+		TEXT['>'] = "&gt;";
+		TEXT['&'] = "&amp;";
+		TEXT['"'] = "&quot;";
+		TEXT['\''] = "&#39;";
+
+		System.arraycopy(TEXT, 0, CODE, 0, TEXT.length);
+		CODE[' '] = NBSP;
+		CODE['\t'] = TAB;
+	}
+
+	private HtmlEscaper() {
+	}
+
+	/**
+	 * Escapa texto comum: &lt;, &gt;, &amp; e aspas
+	 *
+	 * @param text Texto original
+	 * @param out  Buffer de saída
+	 */
+	public static void escape(CharSequence text, StringBuilder out) {
+		escape(text, 0, text.length(), out, TEXT);
+	}
+
+	/**
+	 * Escapa somente o trecho [start, end) do texto
+	 */
+	public static void escape(CharSequence text, int start, int end, StringBuilder out) {
+		escape(text, start, end, out, TEXT);
+	}
+
+	/**
+	 * Escapa uma linha de código: além do texto comum, troca espaços e TABs por &amp;nbsp;
+	 *
+	 * @param code Linha de código
+	 * @param out  Buffer de saída
+	 */
+	public static void escapeCode(CharSequence code, StringBuilder out) {
+		escape(code, 0, code.length(), out, CODE);
+	}
+
+	/**
+	 * Escapa somente o trecho [start, end) da linha de código
+	 */
+	public static void escapeCode(CharSequence code, int start, int end, StringBuilder out) {
+		escape(code, start, end, out, CODE);
+	}
+
+	/**
+	 * Atalho que retorna o texto escapado
+	 *
+	 * @param text Texto original
+	 * @return Texto escapado (o próprio objeto, se não havia nada a escapar)
+	 */
+	public static String escape(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			var c = text.charAt(i);
+
+			if (c < 128 && TEXT[c] != null) {
+				var out = new StringBuilder(text.length() + 16);
+				escape(text, 0, text.length(), out, TEXT);
+				return out.toString();
+			}
+		}
+
+		return text;
+	}
+
+	private static void escape(CharSequence text, int start, int end, StringBuilder out, String[] replacements) {
+		var runStart = start;
+
+		for (int i = start; i < end; i++) {
+			var c = text.charAt(i);
+
+			if (c < 128) {
+				var replacement = replacements[c];
+
+				if (replacement != null) {
+					// Copia o trecho sem caracteres especiais de uma vez
+					out.append(text, runStart, i).append(replacement);
+					runStart = i + 1;
+				}
+			}
+		}
+
+		out.append(text, runStart, end);
+	}
+}
@@ -0,0 +1,154 @@
+package com.learningcurve.compiler;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache persistente das dimensões das imagens locais, para que uma compilação de muitas lições
+ * que usam as mesmas imagens leia o cabeçalho de cada arquivo uma única vez.
+ * Cada caminho guarda uma única entrada, com o tamanho e a data de modificação do arquivo: um arquivo
+ * alterado é lido de novo e a sua entrada antiga é substituída.
+ *
+ * Formato do arquivo:
+ * <pre>
+ * "LCMI" | versão (varint) | quantidade (varint) | para cada imagem:
+ *     caminho (tamanho + UTF-8) | tamanho (long) | modificação em ms (long) | largura (varint) | altura (varint)
+ * </pre>
+ */
+public class ImageMetadataCache {
+
+	public static final int VERSION = 1;
+
+	private static final byte[] MAGIC = { 'L', 'C', 'M', 'I' };
+
+	// Largura e altura 0 marcam um arquivo que não é uma imagem reconhecida
+	private record Entry(long size, long modified, int width, int height) {
+	}
+
+	// Entradas pelo caminho absoluto da imagem
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final Path file;
+
+	private volatile boolean changed = false;
+
+	/**
+	 * Cria o cache, carregando o arquivo se ele existir
+	 *
+	 * @param file Arquivo do cache ou nulo, para um cache somente em memória
+	 */
+	public ImageMetadataCache(Path file) {
+		this.file = file;
+
+		if (file != null && Files.isRegularFile(file))
+			load();
+	}
+
+	/**
+	 * Retorna as dimensões de uma imagem local, lendo o cabeçalho somente se ela não estiver no cache
+	 *
+	 * @param image Arquivo da imagem
+	 * @return {largura, altura} ou nulo, se o arquivo não existir ou não for uma imagem reconhecida
+	 */
+	public int[] dimensions(Path image) {
+		try {
+			var attributes = Files.readAttributes(image, BasicFileAttributes.class);
+
+			if (!attributes.isRegularFile())
+				return null;
+
+			var size = attributes.size();
+			var modified = attributes.lastModifiedTime().toMillis();
+
+			var entry = entries.compute(image.toAbsolutePath().normalize().toString(), (path, cached) -> {
+				if (cached != null && cached.size() == size && cached.modified() == modified)
+					return cached;
+
+				changed = true;
+
+				try {
+					var probed = ImageProbe.probe(image);
+					return probed == null ? new Entry(size, modified, 0, 0)
+							: new Entry(size, modified, probed[0], probed[1]);
+				} catch (IOException e) {
+					return new Entry(size, modified, 0, 0);
+				}
+			});
+
+			return entry.width() == 0 ? null : new int[] { entry.width(), entry.height() };
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Grava o cache, se houve alguma alteração
+	 *
+	 * @throws IOException Em caso de erro de gravação
+	 */
+	public void save() throws IOException {
+		if (file == null || !changed)
+			return;
+
+		var out = new BinaryEncoder();
+		out.write(MAGIC, 0, MAGIC.length);
+		out.writeVarint(VERSION);
+
+		var snapshot = entries.entrySet().stream().toList();
+		out.writeVarint(snapshot.size());
+
+		for (var entry : snapshot) {
+			out.writeString(entry.getKey());
+			out.writeLong(entry.getValue().size());
+			out.writeLong(entry.getValue().modified());
+			out.writeVarint(entry.getValue().width());
+			out.writeVarint(entry.getValue().height());
+		}
+
+		var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.write(temporary, out.toByteArray());
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+		changed = false;
+	}
+
+	/**
+	 * Carrega o arquivo do cache. Um arquivo de outra versão ou corrompido é ignorado.
+	 */
+	private void load() {
+		try {
+			var buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+
+			for (var b : MAGIC) {
+				if (buffer.get() != b)
+					return;
+			}
+
+			if (BinaryEncoder.readVarint(buffer) != VERSION)
+				return;
+
+			var count = BinaryEncoder.readVarint(buffer);
+
+			for (int i = 0; i < count; i++) {
+				var path = BinaryEncoder.readString(buffer);
+				var entry = new Entry(buffer.getLong(), buffer.getLong(), BinaryEncoder.readVarint(buffer),
+						BinaryEncoder.readVarint(buffer));
+
+				// Arquivos gravados antes podem ter várias entradas por caminho; fica a última e o arquivo é regravado
+				if (entries.put(path, entry) != null)
+					changed = true;
+			}
+		} catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+			entries.clear();
+		}
+	}
+}
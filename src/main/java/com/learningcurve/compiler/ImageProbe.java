@@ -0,0 +1,136 @@
+package com.learningcurve.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Lê as dimensões de uma imagem PNG, JPEG, GIF ou WebP somente pelos bytes do cabeçalho,
+ * sem decodificar a imagem
+ */
+public final class ImageProbe {
+
+	// O cabeçalho do PNG, GIF e WebP cabe nesse tamanho; o JPEG é percorrido segmento a segmento
+	private static final int HEADER_SIZE = 30;
+
+	private ImageProbe() {
+	}
+
+	/**
+	 * Lê as dimensões da imagem
+	 *
+	 * @param file Arquivo da imagem
+	 * @return {largura, altura} ou nulo, se o formato não for reconhecido
+	 * @throws IOException Em caso de erro de leitura
+	 */
+	public static int[] probe(Path file) throws IOException {
+		try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 512))) {
+			input.mark(HEADER_SIZE);
+
+			var header = input.readNBytes(HEADER_SIZE);
+
+			if (header.length >= 24 && startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A))
+				return new int[] { bigEndian32(header, 16), bigEndian32(header, 20) };
+
+			if (header.length >= 10 && startsWith(header, 0, 'G', 'I', 'F', '8'))
+				return new int[] { littleEndian16(header, 6), littleEndian16(header, 8) };
+
+			if (header.length >= 30 && startsWith(header, 0, 'R', 'I', 'F', 'F') && startsWith(header, 8, 'W', 'E', 'B', 'P'))
+				return webp(header);
+
+			if (header.length >= 2 && startsWith(header, 0, 0xFF, 0xD8)) {
+				input.reset();
+				input.skipNBytes(2);
+				return jpeg(input);
+			}
+
+			return null;
+		} catch (EOFException e) {
+			// Arquivo truncado
+			return null;
+		}
+	}
+
+	private static int[] webp(byte[] header) {
+		// Com perda: quadro VP8 com as dimensões em 14 bits
+		if (startsWith(header, 12, 'V', 'P', '8', ' '))
+			return new int[] { littleEndian16(header, 26) & 0x3FFF, littleEndian16(header, 28) & 0x3FFF };
+
+		// Sem perda: largura e altura - 1 em 14 bits cada, logo após a assinatura 0x2F
+		if (startsWith(header, 12, 'V', 'P', '8', 'L')) {
+			var bits = littleEndian16(header, 21) | littleEndian16(header, 23) << 16;
+			return new int[] { (bits & 0x3FFF) + 1, (bits >>> 14 & 0x3FFF) + 1 };
+		}
+
+		// Estendido: largura e altura - 1 em 24 bits cada
+		if (startsWith(header, 12, 'V', 'P', '8', 'X'))
+			return new int[] { littleEndian24(header, 24) + 1, littleEndian24(header, 27) + 1 };
+
+		return null;
+	}
+
+	/**
+	 * Percorre os segmentos do JPEG até o início do quadro (SOFn), que tem as dimensões
+	 */
+	private static int[] jpeg(DataInputStream input) throws IOException {
+		for (;;) {
+			var b = input.readUnsignedByte();
+
+			if (b != 0xFF)
+				return null;
+
+			var marker = input.readUnsignedByte();
+
+			// Preenchimento
+			while (marker == 0xFF) {
+				marker = input.readUnsignedByte();
+			}
+
+			// Marcadores sem conteúdo
+			if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7))
+				continue;
+
+			// Fim da imagem ou início dos dados sem ter achado o quadro
+			if (marker == 0xD9 || marker == 0xDA)
+				return null;
+
+			var length = input.readUnsignedShort();
+
+			// SOF0..SOF15, exceto DHT (C4), JPG (C8) e DAC (CC)
+			if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+				input.readUnsignedByte(); // precisão
+				var height = input.readUnsignedShort();
+				var width = input.readUnsignedShort();
+				return new int[] { width, height };
+			}
+
+			input.skipNBytes(length - 2);
+		}
+	}
+
+	private static boolean startsWith(byte[] data, int offset, int... prefix) {
+		for (int i = 0; i < prefix.length; i++) {
+			if ((data[offset + i] & 0xFF) != prefix[i])
+				return false;
+		}
+
+		return true;
+	}
+
+	private static int bigEndian32(byte[] data, int offset) {
+		return (data[offset] & 0xFF) << 24 | (data[offset + 1] & 0xFF) << 16 | (data[offset + 2] & 0xFF) << 8
+				| (data[offset + 3] & 0xFF);
+	}
+
+	private static int littleEndian16(byte[] data, int offset) {
+		return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+	}
+
+	private static int littleEndian24(byte[] data, int offset) {
+		return littleEndian16(data, offset) | (data[offset + 2] & 0xFF) << 16;
+	}
+}
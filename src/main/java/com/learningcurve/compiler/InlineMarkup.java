@@ -0,0 +1,116 @@
+package com.learningcurve.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Analisa a marcação de texto (negrito, itálico, links...) e gera uma árvore de trechos,
+ * para os tradutores que não geram HTML.
+ * A marcação é a mesma do HTMLTranslator: **negrito**, *itálico*, ~~riscado~~, ~subscrito~,
+ * __sublinhado__, ^sobrescrito^, ++maior++ e [texto](url).
+ * <p>
+ * Com uma marcação de cada tipo por texto, as duas dão o mesmo resultado, inclusive com marcações
+ * aninhadas. O HTMLTranslator aplica as expressões regulares de MarkingLanguage, que convertem
+ * somente a última ocorrência de cada tipo; a saída HTML é mantida assim por compatibilidade.
+ * Diferenças (fixadas em InlineMarkupTest):
+ * <ul>
+ * <li>Vários trechos do mesmo tipo: aqui todos são convertidos; no HTML, só o último
+ * ("**a** e **b**" vira "*&lt;i&gt;a*&lt;/i&gt; e &lt;b&gt;b&lt;/b&gt;").</li>
+ * <li>O endereço do link termina no primeiro ')': "[a](f(x))" gera o link "f(x" seguido do texto ")";
+ * no HTML, o endereço vai até o último ')' da linha.</li>
+ * <li>O texto é analisado como está; o HTMLTranslator analisa o texto já escapado para HTML.</li>
+ * </ul>
+ */
+public final class InlineMarkup {
+
+	/**
+	 * Um trecho do texto
+	 *
+	 * @param type     Tipo: text, b, i, s, sub, u, sup, big ou link
+	 * @param text     Texto (somente para text)
+	 * @param href     Endereço (somente para link)
+	 * @param children Trechos internos (para os demais tipos)
+	 */
+	public record Span(String type, String text, String href, List<Span> children) {
+	}
+
+	// Marcadores na ordem em que são testados: os mais longos antes dos mais curtos
+	private static final String[][] MARKERS = {
+			{ "**", "b" },
+			{ "~~", "s" },
+			{ "__", "u" },
+			{ "++", "big" },
+			{ "*", "i" },
+			{ "~", "sub" },
+			{ "^", "sup" },
+	};
+
+	private InlineMarkup() {
+	}
+
+	/**
+	 * Analisa o texto
+	 *
+	 * @param text Texto com marcação
+	 * @return Trechos do texto, na ordem
+	 */
+	public static List<Span> parse(String text) {
+		var spans = new ArrayList<Span>();
+		parse(text, 0, text.length(), spans);
+		return spans;
+	}
+
+	private static void parse(String text, int start, int end, List<Span> spans) {
+		var plainStart = start;
+		var i = start;
+
+		while (i < end) {
+			var matched = false;
+
+			// Link: [texto](url)
+			if (text.charAt(i) == '[') {
+				var close = text.indexOf("](", i + 1);
+				var urlEnd = close < 0 ? -1 : text.indexOf(')', close + 2);
+
+				if (close > i + 1 && urlEnd > close + 2 && urlEnd < end) {
+					addText(text, plainStart, i, spans);
+					var children = new ArrayList<Span>();
+					parse(text, i + 1, close, children);
+					spans.add(new Span("link", null, text.substring(close + 2, urlEnd), children));
+					i = urlEnd + 1;
+					plainStart = i;
+					matched = true;
+				}
+			}
+
+			for (int m = 0; !matched && m < MARKERS.length; m++) {
+				var marker = MARKERS[m][0];
+
+				if (!text.startsWith(marker, i))
+					continue;
+
+				var close = text.indexOf(marker, i + marker.length() + 1);
+
+				if (close > 0 && close + marker.length() <= end) {
+					addText(text, plainStart, i, spans);
+					var children = new ArrayList<Span>();
+					parse(text, i + marker.length(), close, children);
+					spans.add(new Span(MARKERS[m][1], null, null, children));
+					i = close + marker.length();
+					plainStart = i;
+					matched = true;
+				}
+			}
+
+			if (!matched)
+				i++;
+		}
+
+		addText(text, plainStart, end, spans);
+	}
+
+	private static void addText(String text, int start, int end, List<Span> spans) {
+		if (end > start)
+			spans.add(new Span("text", text.substring(start, end), null, null));
+	}
+}
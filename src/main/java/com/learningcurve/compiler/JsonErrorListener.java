@@ -12,6 +12,8 @@ public class JsonErrorListener implements ErrorListener {
 
     private List<Error> errors = new ArrayList<>();
 
+    private List<Error> warnings = new ArrayList<>();
+
     @Override
     public void syntaxError(String errorMsg, String line, int lineNum, int position) {
         errors.add(new Error(errorMsg, line, lineNum));
@@ -22,10 +24,24 @@ public class JsonErrorListener implements ErrorListener {
         errors.add(new Error(errorMsg, null, null));
     }
 
+    @Override
+    public void semanticError(String errorMsg, String line, int lineNum) {
+        errors.add(new Error(errorMsg, line, lineNum));
+    }
+
+    @Override
+    public void semanticWarning(String warningMsg, String line, int lineNum) {
+        warnings.add(new Error(warningMsg, line, lineNum));
+    }
+
     public List<Error> getErrors() {
         return errors;
     }
 
+    public List<Error> getWarnings() {
+        return warnings;
+    }
+
     /**
      * Salva os erros de compilação num arquivo JSON
      * Caso não haja erros, não faz nada.
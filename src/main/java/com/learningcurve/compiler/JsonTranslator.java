@@ -0,0 +1,306 @@
+package com.learningcurve.compiler;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonWriter;
+
+import com.learningcurve.compiler.adapter.ErrorListener;
+import com.learningcurve.compiler.adapter.Translator;
+
+/**
+ * Tradutor que gera a árvore do documento em JSON compacto, para clientes que renderizam
+ * o conteúdo nativamente. O JSON é escrito em fluxo (JsonWriter), à medida que os tokens são lidos.
+ *
+ * Formato: {"version":1,"blocks":[...]}. Cada bloco tem um "type":
+ * h1/h2/h3 (text), paragraph (content), list (items), concepts/scenario/question (children),
+ * concept/step/option (content), table (border, rows de células com align e content),
+ * code (language, lines), image (url, alt, width, height) e video (url, youtube, width, height).
+ * "content" é uma lista de trechos: text, br, b, i, s, u, sub, sup, big e link (href).
+ */
+public class JsonTranslator implements Translator {
+
+	public static final int FORMAT_VERSION = 1;
+
+	private JsonWriter json;
+	private int errorCounter = 0;
+	private int stepCounter = 0;
+	private int tableRowCounter = 0;
+	private List<String> tableAlignment;
+
+	// Blocos abertos (parágrafo, lista, tabela...) que ainda precisam ser fechados
+	private final Deque<TokenType> open = new ArrayDeque<>();
+
+	@Override
+	public int translate(List<TokenNode> syntax, PrintStream output, ErrorListener errorListener) {
+		this.errorCounter = 0;
+		this.open.clear();
+		this.json = new JsonWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+		try {
+			json.beginObject();
+			json.name("version").value(FORMAT_VERSION);
+			json.name("blocks").beginArray();
+
+			for (var token : syntax) {
+				convert(token);
+			}
+
+			// Um parágrafo no fim do arquivo não recebe END_PARAGRAPH
+			while (!open.isEmpty()) {
+				close();
+			}
+
+			json.endArray();
+			json.endObject();
+			json.flush();
+		} catch (IOException | IllegalStateException e) {
+			errorListener.semanticError("Erro ao gerar o JSON: " + e.getMessage());
+			errorCounter++;
+		}
+
+		return errorCounter;
+	}
+
+	private void convert(TokenNode token) throws IOException {
+		var params = token.params();
+
+		switch (token.type()) {
+			case HEADER1:
+				block("h1").name("text").value(param(params, "title")).endObject();
+				break;
+			case HEADER2:
+				block("h2").name("text").value(param(params, "title")).endObject();
+				break;
+			case HEADER3:
+				block("h3").name("text").value(param(params, "title")).endObject();
+				break;
+
+			case BEGIN_CONCEPTS:
+				begin(token.type(), "concepts", "children");
+				break;
+			case CONCEPT:
+				block("concept");
+				content(param(params, "concept"));
+				json.endObject();
+				break;
+
+			case BEGIN_LIST:
+				begin(token.type(), "list", "items");
+				break;
+			case LIST_ITEM:
+				json.beginArray();
+				spans(InlineMarkup.parse(param(params, "item")));
+				json.endArray();
+				break;
+
+			case BEGIN_SCENARIO:
+				this.stepCounter = 0;
+				begin(token.type(), "scenario", "children");
+				break;
+			case STEP:
+				block("step").name("number").value(++this.stepCounter);
+				content(param(params, "step"));
+				json.endObject();
+				break;
+
+			case IMAGE:
+				block("image").name("url").value(param(params, "url"));
+				var alt = param(params, "alt");
+				// O lexer mantém as aspas do texto alternativo
+				json.name("alt").value(alt == null ? null : alt.substring(1, alt.length() - 1));
+				dimensions(params);
+				json.endObject();
+				break;
+			case VIDEO:
+				block("video").name("url").value(param(params, "url"));
+				json.name("youtube").value(param(params, "url").contains("youtube"));
+				dimensions(params);
+				json.endObject();
+				break;
+
+			case BEGIN_PARAGRAPH:
+				begin(token.type(), "paragraph", "content");
+				break;
+			case TEXT:
+				text(param(params, "paragraph"));
+				break;
+			case BREAK:
+				json.beginObject().name("type").value("br").endObject();
+				break;
+
+			case BEGIN_SOURCE:
+				begin(token.type(), "code", null);
+				json.name("language").value(param(params, "lang"));
+				json.name("lines").beginArray();
+				break;
+			case SOURCE_CODE:
+				json.value(param(params, "source"));
+				break;
+
+			case BEGIN_QUESTION:
+				begin(token.type(), "question", null);
+				var check = param(params, "check");
+				if (check != null && !check.isEmpty())
+					json.name("check").value(check);
+				json.name("children").beginArray();
+				break;
+			case ANSWER:
+				block("option").name("correct").value(!param(params, "iscorrect").isEmpty());
+				content(param(params, "option"));
+				json.endObject();
+				break;
+
+			case BEGIN_TABLE:
+				this.tableRowCounter = 0;
+				begin(token.type(), "table", null);
+				json.name("border").value(param(params, "hasborder") != null);
+				json.name("rows").beginArray();
+				break;
+			case TABLE_ROW:
+				row(params);
+				break;
+
+			case END_CONCEPTS:
+			case END_LIST:
+			case END_SCENARIO:
+			case END_PARAGRAPH:
+			case END_SOURCE:
+			case END_QUESTION:
+			case END_TABLE:
+				close();
+				break;
+
+			default:
+				break;
+		}
+	}
+
+	private static String param(Map<String, Pair<String, Integer>> params, String name) {
+		var value = params.get(name);
+		return value == null ? null : value.left();
+	}
+
+	/**
+	 * Abre o objeto de um bloco e escreve o seu tipo
+	 */
+	private JsonWriter block(String type) throws IOException {
+		return json.beginObject().name("type").value(type);
+	}
+
+	/**
+	 * Abre um bloco que contém outros elementos. Se 'list' não for nulo, abre também o array com esse nome.
+	 */
+	private void begin(TokenType type, String blockType, String list) throws IOException {
+		block(blockType);
+		open.push(type);
+
+		if (list != null)
+			json.name(list).beginArray();
+	}
+
+	/**
+	 * Fecha o último bloco aberto (o array de elementos e o objeto)
+	 */
+	private void close() throws IOException {
+		open.pop();
+		json.endArray();
+		json.endObject();
+	}
+
+	private void dimensions(Map<String, Pair<String, Integer>> params) throws IOException {
+		var width = param(params, "width");
+		var height = param(params, "height");
+
+		if (width != null && height != null) {
+			json.name("width").value(new BigInteger(width));
+			json.name("height").value(new BigInteger(height));
+		}
+	}
+
+	private void content(String text) throws IOException {
+		json.name("content").beginArray();
+		spans(InlineMarkup.parse(text));
+		json.endArray();
+	}
+
+	/**
+	 * Linha de parágrafo: como no HTML, o texto é aparado e uma barra no final vira quebra de linha
+	 */
+	private void text(String text) throws IOException {
+		var content = text.trim();
+		var lineBreak = content.endsWith("\\");
+
+		if (lineBreak)
+			content = content.substring(0, content.length() - 1);
+
+		spans(InlineMarkup.parse(content));
+
+		if (lineBreak)
+			json.beginObject().name("type").value("br").endObject();
+	}
+
+	private void spans(List<InlineMarkup.Span> spans) throws IOException {
+		for (var span : spans) {
+			json.beginObject().name("type").value(span.type());
+
+			if (span.text() != null)
+				json.name("text").value(span.text());
+
+			if (span.href() != null)
+				json.name("href").value(span.href());
+
+			if (span.children() != null) {
+				json.name("content").beginArray();
+				spans(span.children());
+				json.endArray();
+			}
+
+			json.endObject();
+		}
+	}
+
+	/**
+	 * Linha da tabela. A primeira linha é o cabeçalho e define o alinhamento das colunas (&lt;, = ou &gt;).
+	 */
+	private void row(Map<String, Pair<String, Integer>> row) throws IOException {
+		var header = ++this.tableRowCounter == 1;
+
+		if (header)
+			this.tableAlignment = new ArrayList<>();
+
+		json.beginArray();
+
+		for (int index = 1; row.containsKey("cell" + index); index++) {
+			var value = row.get("cell" + index).left().trim();
+			var alignment = header ? "left" : index <= tableAlignment.size() ? tableAlignment.get(index - 1) : "left";
+
+			if (header) {
+				var first = value.isEmpty() ? ' ' : value.charAt(0);
+
+				if (first == '>' || first == '=' || first == '<') {
+					value = value.substring(1);
+					alignment = first == '>' ? "right" : first == '=' ? "center" : "left";
+				}
+
+				this.tableAlignment.add(alignment);
+			}
+
+			json.beginObject().name("align").value(alignment);
+			json.name("content").beginArray();
+			spans(InlineMarkup.parse(value));
+			json.endArray();
+			json.endObject();
+		}
+
+		json.endArray();
+	}
+}
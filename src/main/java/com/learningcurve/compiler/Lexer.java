@@ -35,7 +35,7 @@ public class Lexer {
 				"^#video[\\s]+(?<url>[^\\s]+)(?:[\\s]+(?<width>\\d+)[\\s]+(?<height>\\d+))?[\\s]*$",
 				EnumSet.of(Context.DEFAULT, Context.CONCEPTS, Context.SCENARIO, Context.QUESTION)));
 		commands.add(new Command(TokenType.BEGIN_SOURCE,
-				"^#code[\\s]*$",
+				"^#code(?:[\\s]+(?<lang>[\\w+#.-]+))?[\\s]*$",
 				EnumSet.of(Context.DEFAULT, Context.CONCEPTS, Context.SCENARIO, Context.QUESTION)));
 		commands.add(new Command(TokenType.END_SOURCE,
 				"^#code[\\s]*$",
@@ -88,6 +88,9 @@ public class Lexer {
 		commands.add(new Command(TokenType.ANSWER,
 				"^(?:\\()(?<iscorrect>\\*?)(?:\\))(?<option>.+)$",
 				EnumSet.of(Context.QUESTION)));
+		commands.add(new Command(TokenType.INCLUDE,
+				"^#include[\\s]+(?<path>.+?)[\\s]*$",
+				EnumSet.of(Context.DEFAULT)));
 		commands.add(new Command(TokenType.BREAK,
 				"^(?:\\\\)$",
 				EnumSet.of(Context.PARAGRAPH)));
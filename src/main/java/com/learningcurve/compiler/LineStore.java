@@ -0,0 +1,231 @@
+package com.learningcurve.compiler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.learningcurve.compiler.adapter.RandomAccessTextReader;
+
+/**
+ * Leitor com acesso aleatório às linhas. O texto inteiro fica num único vetor, sem as quebras de linha
+ * e sem os espaços no final de cada linha, e uma tabela de posições marca o início de cada linha.
+ * Um texto somente com caracteres até U+00FF (ASCII e Latin-1) é guardado com um byte por caractere.
+ * Não há um String por linha: readLine() cria o String da linha lida, e line() retorna uma visão do texto.
+ * As linhas são as mesmas do DefaultReader.
+ */
+public class LineStore implements RandomAccessTextReader {
+
+	// Texto com um byte por caractere (Latin-1) ou nulo, se houver caracteres acima de U+00FF
+	private final byte[] latin1;
+
+	// Texto com dois bytes por caractere, usado somente se latin1 for nulo
+	private final char[] chars;
+
+	// Início de cada linha no texto; offsets[lineCount] é o fim do texto
+	private final int[] offsets;
+
+	private final int lineCount;
+
+	// Índice da última linha lida (-1: nenhuma)
+	private int cursor = -1;
+
+	/**
+	 * Lê o texto inteiro para a memória
+	 *
+	 * @param inputReader Entrada de dados no modo texto
+	 * @throws IOException Em caso de erro de leitura
+	 */
+	public LineStore(Reader inputReader) throws IOException {
+		var input = readAll(inputReader);
+		var length = input.length;
+
+		// As linhas são compactadas no próprio vetor lido: o destino nunca passa da posição de leitura
+		var text = input;
+		var starts = new int[16];
+		var count = 0;
+		var size = 0;
+		var wide = false;
+
+		for (int i = 0; i < length;) {
+			// Fim da linha: \n, \r ou \r\n, como no BufferedReader
+			var end = i;
+			while (end < length && input[end] != '\n' && input[end] != '\r')
+				end++;
+
+			var next = end < length && input[end] == '\r' && end + 1 < length && input[end + 1] == '\n' ? end + 2
+					: end + 1;
+
+			// Remove os espaços no final da linha ou, como o \s+$ do DefaultReader, antes de um separador no fim dela
+			var trimmed = end;
+			while (trimmed > i && isWhitespace(input[trimmed - 1]))
+				trimmed--;
+
+			var separator = trimmed == end && end > i && isLineSeparator(input[end - 1]);
+
+			if (separator) {
+				trimmed = end - 1;
+				while (trimmed > i && isWhitespace(input[trimmed - 1]))
+					trimmed--;
+			}
+
+			if (count + 1 >= starts.length)
+				starts = Arrays.copyOf(starts, starts.length * 2);
+
+			starts[count++] = size;
+
+			for (int j = i; j < trimmed; j++) {
+				wide |= input[j] > 0xFF;
+				text[size++] = input[j];
+			}
+
+			if (separator) {
+				wide |= input[end - 1] > 0xFF;
+				text[size++] = input[end - 1];
+			}
+
+			i = next;
+		}
+
+		starts[count] = size;
+
+		this.lineCount = count;
+		this.offsets = Arrays.copyOf(starts, count + 1);
+
+		if (wide) {
+			this.latin1 = null;
+			this.chars = Arrays.copyOf(text, size);
+		} else {
+			this.latin1 = new byte[size];
+			this.chars = null;
+
+			for (int i = 0; i < size; i++) {
+				latin1[i] = (byte) text[i];
+			}
+		}
+	}
+
+	private static char[] readAll(Reader reader) throws IOException {
+		try (reader) {
+			var buffer = new char[8192];
+			var size = 0;
+
+			for (int read; (read = reader.read(buffer, size, buffer.length - size)) >= 0;) {
+				size += read;
+
+				if (size == buffer.length)
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+
+			return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+		}
+	}
+
+	/**
+	 * Mesmos caracteres de \s nas expressões regulares
+	 */
+	static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * Separadores de linha Unicode, antes dos quais o $ das expressões regulares também casa
+	 */
+	static boolean isLineSeparator(char c) {
+		return c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	/**
+	 * Retorna a próxima linha ou null, se o texto terminou
+	 */
+	@Override
+	public String readLine() {
+		return cursor + 1 < lineCount ? text(offsets[++cursor], offsets[cursor + 1]) : null;
+	}
+
+	/**
+	 * Retorna a posição de leitura atual (1, 2, ...) ou zero, se ainda não foi feita nenhuma leitura
+	 */
+	@Override
+	public int currentLineNumber() {
+		return cursor + 1;
+	}
+
+	@Override
+	public int lineCount() {
+		return lineCount;
+	}
+
+	@Override
+	public CharSequence line(int lineNumber) {
+		checkLine(lineNumber, lineCount);
+		return new View(offsets[lineNumber - 1], offsets[lineNumber]);
+	}
+
+	@Override
+	public void seek(int lineNumber) {
+		checkLine(lineNumber, lineCount + 1);
+		cursor = lineNumber - 2;
+	}
+
+	private static void checkLine(int lineNumber, int last) {
+		if (lineNumber < 1 || lineNumber > last)
+			throw new IndexOutOfBoundsException("Linha " + lineNumber + " fora de 1.." + last);
+	}
+
+	/**
+	 * Memória ocupada pelo texto, em bytes, sem a tabela de posições
+	 */
+	public long textBytes() {
+		return latin1 != null ? latin1.length : chars.length * 2L;
+	}
+
+	private char charAt(int index) {
+		return latin1 != null ? (char) (latin1[index] & 0xFF) : chars[index];
+	}
+
+	private String text(int start, int end) {
+		return latin1 != null ? new String(latin1, start, end - start, StandardCharsets.ISO_8859_1)
+				: new String(chars, start, end - start);
+	}
+
+	/**
+	 * Trecho do texto, sem cópia
+	 */
+	private final class View implements CharSequence {
+
+		private final int start;
+		private final int end;
+
+		View(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start)
+				throw new IndexOutOfBoundsException(index);
+
+			return LineStore.this.charAt(start + index);
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			if (from < 0 || to > end - start || from > to)
+				throw new IndexOutOfBoundsException();
+
+			return new View(start + from, start + to);
+		}
+
+		@Override
+		public String toString() {
+			return text(start, end);
+		}
+	}
+}
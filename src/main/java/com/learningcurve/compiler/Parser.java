@@ -1,11 +1,24 @@
 package com.learningcurve.compiler;
 
 import com.learningcurve.compiler.adapter.ErrorListener;
+import com.learningcurve.compiler.adapter.StreamingTranslator;
 import com.learningcurve.compiler.adapter.TextReader;
 import com.learningcurve.compiler.adapter.Translator;
+import com.learningcurve.compiler.metrics.CompileEvent;
+import com.learningcurve.compiler.metrics.CompilerMetrics;
+import com.learningcurve.compiler.metrics.LineProfiler;
+import com.learningcurve.compiler.metrics.PhaseEvent;
+import com.learningcurve.compiler.metrics.SlowLineEvent;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntSupplier;
 
 
 /**
@@ -13,6 +26,9 @@ import java.util.*;
  */
 public class Parser {
 
+    // Saída da tradução em pipeline guardada na memória antes de passar para um arquivo temporário
+    private static final int SPILL_THRESHOLD = 16 << 20;
+
     // Leitor das linhas do programa
     private final TextReader reader;
 
@@ -31,14 +47,61 @@ public class Parser {
     // Tradutor
     private Translator translator;
 
-    // Lista de ‘tokens’ gerada pelo analisador sintático
+    // Saídas adicionais, geradas em paralelo a partir da mesma lista de tokens
+    private final List<Output> outputs = new ArrayList<>();
+
+    // Lista de ‘tokens’ gerada pelo analisador sintático e quantidade de tokens emitidos na última análise
     private List<TokenNode> tokens;
+    private int tokenCount;
 
     // Contador de erros
     private int errorCounter;
 
+    // Estatísticas da última compilação
+    private CompileStats stats;
+
     // Pilha de contexto
-    private final Deque<Context> context;
+    private final ContextStack context;
+
+    // Tabela de transições (Contexto x Token -> Ação)
+    private ParserTable table;
+
+    // Arquivo do programa, para resolver os caminhos do #include (nulo: pasta atual)
+    private Path sourcePath;
+
+    // Arquivos incluídos já analisados, compartilhado entre as compilações de um lote
+    private FragmentCache fragments;
+
+    // Arquivos sendo incluídos, do mais externo ao atual, para detectar inclusão circular
+    private List<Path> includeChain = List.of();
+
+    // Checksum dos arquivos incluídos na última análise (e dos que eles incluem)
+    private final Map<Path, Long> dependencies = new LinkedHashMap<>();
+
+    // Na análise de um arquivo incluído, não há análise semântica; a linha e o arquivo de origem de cada token
+    // e os erros dos arquivos que ele inclui são guardados
+    private boolean fragment = false;
+    private List<String> tokenLines;
+    private List<Path> tokenFiles;
+    private List<FragmentCache.Diagnostic> includedErrors;
+
+    // Métricas do processo (nulo: sem métricas) e tempo da análise semântica na linha atual
+    private CompilerMetrics metrics;
+    private long lineSemanticNanos;
+
+    // Perfil por linha (nulo: sem perfil)
+    private LineProfiler profiler;
+
+    // Imprime a lista de tokens no final da análise, para depuração
+    private boolean printSyntax = true;
+
+    // Leitura, análise e tradução em threads separadas (pipeline) e os estágios da compilação atual
+    private boolean pipelined = false;
+    private Pipeline pipeline;
+
+    // Guarda a lista de tokens também na compilação em pipeline e, na análise atual, se ela é guardada
+    private boolean keepTokens = false;
+    private boolean keepingTokens = true;
 
     public Parser(TextReader reader, PrintStream output, JsonErrorListener errorListener) {
         super();
@@ -47,11 +110,95 @@ public class Parser {
         this.output = output;
         this.lexer = new Lexer();
         this.semanticAnalyser = new SemanticAnalyser();
-        this.context = new LinkedList<>();
+        this.context = new ContextStack();
+        this.table = ParserTable.standard();
         this.errorListener = errorListener;
 
         // Tradutor default: HTML
         this.translator = new HTMLTranslator();
+        this.fragments = new FragmentCache();
+    }
+
+    /**
+     * Define o arquivo do programa, usado para resolver os caminhos relativos do #include
+     *
+     * @param sourcePath Arquivo do programa
+     */
+    public void setSourcePath(Path sourcePath) {
+        this.sourcePath = sourcePath == null ? null : sourcePath.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Define o cache dos arquivos incluídos, para compartilhá-lo entre várias compilações
+     *
+     * @param fragments Cache dos arquivos incluídos
+     */
+    public void setFragmentCache(FragmentCache fragments) {
+        this.fragments = fragments;
+    }
+
+    /**
+     * Retorna os arquivos incluídos na última análise, direta ou indiretamente, com o checksum de cada um
+     *
+     * @return Caminho -> checksum
+     */
+    public Map<Path, Long> getDependencies() {
+        return Collections.unmodifiableMap(dependencies);
+    }
+
+    /**
+     * Define as métricas que recebem os tempos de cada fase, os tokens e os erros das compilações
+     *
+     * @param metrics Métricas ou nulo, para não medir
+     */
+    public void setMetrics(CompilerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Define o perfil que recebe o tempo e a memória alocada na análise de cada linha
+     *
+     * @param profiler Perfil ou nulo, para não medir
+     */
+    public void setProfiler(LineProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Liga ou desliga a impressão da lista de tokens no final da análise (ligada por padrão)
+     *
+     * @param printSyntax V para imprimir os tokens
+     */
+    public void setPrintSyntax(boolean printSyntax) {
+        this.printSyntax = printSyntax;
+    }
+
+    /**
+     * Liga a compilação em pipeline, para programas muito grandes: a leitura, a análise e a tradução
+     * acontecem em threads separadas e ao mesmo tempo. O resultado e a ordem dos erros são os mesmos
+     * da compilação sequencial. Sem efeito se houver saídas adicionais ou perfil, ou se o tradutor
+     * não for um StreamingTranslator que possa começar antes do fim da análise.
+     * <p>
+     * Os tokens passam da análise para a tradução e são descartados, sem formar a lista (veja setKeepTokens).
+     * A tradução, porém, não pode ir para a saída antes de a análise terminar sem erros: ela é guardada
+     * num Spill, na memória até 16 MB e, acima disso, num arquivo temporário. É uma troca deliberada:
+     * a memória fica limitada, mas um documento grande ocupa em disco o tamanho da saída e é copiado
+     * mais uma vez no fim.
+     *
+     * @param pipelined V para compilar em pipeline
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Guarda a lista de tokens também na compilação em pipeline, por exemplo para gravar o cache.
+     * Sem isso, getTokens retorna uma lista vazia depois de uma compilação em pipeline.
+     *
+     * @param keepTokens V para guardar os tokens
+     */
+    public void setKeepTokens(boolean keepTokens) {
+        this.keepTokens = keepTokens;
     }
 
     /**
@@ -63,6 +210,24 @@ public class Parser {
         this.errorListener = errorListener;
     }
 
+    /**
+     * Retorna o analisador semântico, para registrar novas regras ou medir o tempo de cada regra
+     *
+     * @return Analisador semântico
+     */
+    public SemanticAnalyser getSemanticAnalyser() {
+        return semanticAnalyser;
+    }
+
+    /**
+     * Define uma nova tabela de transições, para estender a gramática
+     *
+     * @param table Tabela de transições
+     */
+    public void setParserTable(ParserTable table) {
+        this.table = table;
+    }
+
     /**
      * Define um novo tradutor
      *
@@ -72,353 +237,472 @@ public class Parser {
         this.translator = translator;
     }
 
+    /**
+     * Acrescenta uma saída gerada a partir da mesma análise (por exemplo, o texto para a busca).
+     * Cada saída tem o seu tradutor, o seu fluxo e o seu tratador de erros, e é traduzida numa thread própria.
+     *
+     * @param translator    Tradutor; a mesma instância não deve ser usada em outra saída
+     * @param output        Fluxo de saída
+     * @param errorListener Tratador dos erros dessa saída
+     */
+    public void addOutput(Translator translator, PrintStream output, JsonErrorListener errorListener) {
+        outputs.add(new Output(translator, output, errorListener));
+    }
+
     /**
      * Compila o programa e indica se houve erro ou não.
      *
      * @return V se não houve erro; e F, caso contrário.
      */
     public boolean compile() {
+        // O documento é contado mesmo que a análise falhe e a tradução não aconteça
+        if (metrics != null)
+            metrics.recordDocument();
+
+        var event = new CompileEvent();
+        event.begin();
+
+        var result = canPipeline() ? compilePipelined((StreamingTranslator) translator) : parse() && translate();
+
+        event.end();
+        if (event.shouldCommit())
+            commit(event, false);
+
+        return result;
+    }
+
+    /**
+     * Faz as análises léxica, sintática e semântica, sem traduzir.
+     * A lista de tokens fica disponível em getTokens, por exemplo para gravar no cache.
+     *
+     * @return V se não houve erro; e F, caso contrário.
+     */
+    public boolean parse() {
 
         errorCounter = 0;
         tokens = new ArrayList<>();
+        tokenCount = 0;
+        keepingTokens = pipeline == null || keepTokens;
+        stats = new CompileStats();
+
+        // A análise semântica acontece junto com a sintática, a cada token emitido
+        semanticAnalyser.reset();
+        dependencies.clear();
 
         // Coloca na pilha o contexto DEFAULT que é o contexto atual (inicial)
         // O topo da pilha é o contexto atual
+        context.clear();
         context.push(Context.DEFAULT);
 
-        for (; ; ) {
-            // Lê uma linha do programa e o seu número
-            var line = reader.readLine();
-            var lineNumber = reader.currentLineNumber();
-
-            // Consulta o contexto do topo da pilha.
-            // Esse é o contexto atual
-            var currentContext = context.peek();
+        var analysis = new PhaseEvent();
+        analysis.begin();
 
-            // O Analisador Léxico classifica essa linha
-            // Para isso, passa o contexto atual para o analisador
-            var lineContent = lexer.classify(line, currentContext);
+        // Lê cada linha do programa e o seu número, na thread atual ou no estágio de leitura do pipeline
+        if (pipeline == null) {
+            for (var eof = false; !eof; )
+                eof = analyzeLine(reader.readLine(), reader.currentLineNumber());
+        } else {
+            pipeline.analyze(this::analyzeLine);
+        }
 
-            // Se for uma linha inválida, trata o erro
-            // Senão, processa essa linha
-            if (lineContent.left() == TokenType.INVALID)
-                addError("Invalid line type", line, lineNumber, -1);
-            else
-                analyze(currentContext, lineContent.left(), lineContent.right(), line, lineNumber);
+        analysis.end();
+        if (analysis.shouldCommit()) {
+            analysis.document = documentName();
+            analysis.phase = PhaseEvent.ANALYSIS;
+            analysis.lexTime = stats.getLexNanos();
+            analysis.commit();
+        }
 
-            if (lineContent.left() == TokenType.EOF)
-                break;
+        // Um arquivo incluído não pode deixar o parágrafo aberto
+        if (fragment && context.peek() == Context.PARAGRAPH) {
+            context.pop();
+            emit(TokenType.END_PARAGRAPH, null, "", reader.currentLineNumber());
         }
 
-        // Somente para ver se está tudo ok!
-        printSyntax(tokens);
+        if (fragment)
+            return errorCounter == 0;
+
+        stats.setLines(reader.currentLineNumber());
+        stats.setTokens(tokenCount);
+
+        // Somente para ver se está tudo ok! Sem a lista, os tokens já foram impressos ao serem emitidos
+        if (printSyntax && keepingTokens)
+            tokens.forEach(this::printToken);
         // ---------------------------------
 
-        // Se não houver nenhum erro, faz análise semântica
+        var syntaxErrors = errorCounter;
+
+        // Se não houver nenhum erro sintático, reporta os erros semânticos encontrados durante a análise
         if (this.errorCounter == 0) {
-            this.errorCounter += this.semanticAnalyser.analyse(tokens, errorListener);
+            var semantic = new PhaseEvent();
+            semantic.begin();
+
+            this.errorCounter += this.semanticAnalyser.flush(errorListener);
+
+            semantic.end();
+            if (semantic.shouldCommit()) {
+                semantic.document = documentName();
+                semantic.phase = PhaseEvent.SEMANTIC;
+                semantic.commit();
+            }
         }
 
-        // Se não houve nenhum erro, então traduz a lista de tokens
-        if (errorCounter == 0) {
-            errorCounter += translator.translate(tokens, output, errorListener);
-            translator.translate(tokens, output, errorListener);
+        if (metrics != null) {
+            metrics.recordErrors(CompilerMetrics.ErrorKind.SYNTAX, syntaxErrors);
+            metrics.recordErrors(CompilerMetrics.ErrorKind.SEMANTIC, errorCounter - syntaxErrors);
         }
 
         return errorCounter == 0;
     }
 
     /**
-     * Método de depuração apenas imprime a lista de ‘tokens’
-     */
-    private void printSyntax(List<TokenNode> tokens) {
-        for (var token : tokens) {
-            System.out.printf("Token: %s", token.type().name());
-
-            if (token.params() != null)
-                token.params().forEach((key, value) -> System.out.printf("\n       %s: [%s] [posicao %d]", key,
-                        value.left(), value.right()));
-
-            System.out.println();
-        }
-    }
-
-    /**
-     * Analisa o token para verificar a corretude sintática de acordo com o contexto
+     * Classifica e analisa uma linha do programa
      *
-     * @param context    Contexto atual do analisador
-     * @param type       Tipo do token
-     * @param params     Parâmetros do ‘token’
-     * @param line       Linh do programa
+     * @param line       Linha do programa ou nulo, no fim do programa
      * @param lineNumber Número da linha
+     * @return V se a linha era o fim do programa
      */
-    private void analyze(Context context, TokenType type, Map<String, Pair<String, Integer>> params, String line,
-                         int lineNumber) {
-
-        // Chama o metodo para analisar o token deacordo com o contexto atual
-        switch (context) {
-            case DEFAULT:
-                analyzeDefault(type, params, line, lineNumber);
-                break;
+    private boolean analyzeLine(String line, int lineNumber) {
+        // Consulta o contexto do topo da pilha.
+        // Esse é o contexto atual
+        var currentContext = context.peek();
+
+        // O Analisador Léxico classifica essa linha
+        // Para isso, passa o contexto atual para o analisador
+        var lineBytes = profiler == null ? 0 : LineProfiler.allocatedBytes();
+        var lexStart = System.nanoTime();
+        var slowLine = new SlowLineEvent();
+        slowLine.begin();
+
+        var lineContent = lexer.classify(line, currentContext);
+
+        slowLine.end();
+        var parseStart = System.nanoTime();
+
+        if (slowLine.shouldCommit()) {
+            slowLine.phase = SlowLineEvent.LEXER;
+            slowLine.lineNumber = lineNumber;
+            slowLine.tokenType = lineContent.left().name();
+            slowLine.text = line;
+            slowLine.commit();
+        }
 
-            case PARAGRAPH:
-                analyzeParagraph(type, params, line, lineNumber);
-                break;
+        // Se for uma linha inválida, trata o erro
+        // Senão, processa essa linha
+        if (lineContent.left() == TokenType.INVALID)
+            addError("Invalid line type", line, lineNumber, -1);
+        else
+            analyze(currentContext, lineContent.left(), lineContent.right(), line, lineNumber);
 
-            case CODE:
-                analyzeCode(type, params, line, lineNumber);
-                break;
+        var parseEnd = System.nanoTime();
 
-            case LIST:
-                analyseList(type, params, line, lineNumber);
-                break;
+        stats.addLexNanos(parseStart - lexStart);
+        stats.addParseNanos(parseEnd - parseStart);
 
-            case CONCEPTS:
-                analyzeConcepts(type, params, line, lineNumber);
-                break;
-
-            case TABLE:
-                analyzeTable(type, params, line, lineNumber);
-                break;
+        if (metrics != null) {
+            metrics.recordLine(parseStart - lexStart, parseEnd - parseStart - lineSemanticNanos);
+            lineSemanticNanos = 0;
+        }
 
-            case SCENARIO:
-                analyzeScenario(type, params, line, lineNumber);
-                break;
+        if (profiler != null && lineContent.left() != TokenType.EOF)
+            profiler.recordAnalysis(lineNumber, line, lineContent.left(), currentContext, parseStart - lexStart,
+                    parseEnd - parseStart, LineProfiler.allocatedBytes() - lineBytes);
 
-            case QUESTION:
-                analyzeQuestion(type, params, line, lineNumber);
-                break;
-        }
+        return lineContent.left() == TokenType.EOF;
     }
 
     /**
-     * Analisa o token para verificar a corretude sintática no contexto DEFAULT
+     * Traduz uma lista de tokens já analisada (por exemplo, lida do cache), sem ler o programa
      *
-     * @param type       Tipo do token
-     * @param params     Parâmetros do ‘token’
-     * @param line       Linh do programa
-     * @param lineNumber Número da linha
+     * @param tokens Tokens de uma compilação sem erros
+     * @return V se não houve erro; e F, caso contrário.
      */
-    private void analyzeDefault(TokenType type, Map<String, Pair<String, Integer>> params, String line,
-                                int lineNumber) {
+    public boolean translate(List<TokenNode> tokens) {
+        errorCounter = 0;
+        this.tokens = tokens;
+        stats = new CompileStats();
+        stats.setTokens(tokens.size());
 
-        switch (type) {
-            case HEADER1:
-                tokens.add(new TokenNode(type, params));
-                break;
+        if (metrics != null)
+            metrics.recordDocument();
 
-            case HEADER2:
-                tokens.add(new TokenNode(type, params));
-                break;
+        var event = new CompileEvent();
+        event.begin();
 
-            case HEADER3:
-                tokens.add(new TokenNode(type, params));
-                break;
+        var result = translate();
 
-            case IMAGE:
-                tokens.add(new TokenNode(type, params));
-                break;
+        event.end();
+        if (event.shouldCommit())
+            commit(event, true);
 
-            case VIDEO:
-                tokens.add(new TokenNode(type, params));
-                break;
+        return result;
+    }
 
-            case BEGIN_SOURCE:
-                // Muda para o contexto CODE
-                context.push(Context.CODE);
-                tokens.add(new TokenNode(type, params));
-                break;
+    /**
+     * Completa e grava o evento de compilação do JFR
+     */
+    private void commit(CompileEvent event, boolean cached) {
+        event.document = documentName();
+        event.lines = stats.getLines();
+        event.tokens = stats.getTokens();
+        event.errors = errorCounter;
+        event.cached = cached;
+        event.commit();
+    }
 
-            case BEGIN_LIST:
-                // Muda para o contexto LIST
-                context.push(Context.LIST);
-                tokens.add(new TokenNode(type, params));
-                break;
+    private String documentName() {
+        return sourcePath == null ? null : sourcePath.toString();
+    }
 
-            case BEGIN_CONCEPTS:
-                // Muda para o contexto CONCEPTS
-                context.push(Context.CONCEPTS);
-                tokens.add(new TokenNode(type, params));
-                break;
+    /**
+     * Traduz a lista de tokens atual
+     */
+    private boolean translate() {
+        // Os tradutores compartilham a lista, que não pode mais ser alterada
+        var syntax = Collections.unmodifiableList(tokens);
 
-            case BEGIN_TABLE:
-                // Muda para o contexto TABLE
-                context.push(Context.TABLE);
-                tokens.add(new TokenNode(type, params));
-                break;
+        return translate(() -> outputs.isEmpty() ? translator.translate(syntax, output, errorListener)
+                : translateAll(syntax));
+    }
 
-            case BEGIN_SCENARIO:
-                // Muda para o contexto SCENARIO
-                context.push(Context.SCENARIO);
-                tokens.add(new TokenNode(type, params));
-                break;
+    /**
+     * Executa a fase de tradução, com as medidas e eventos dela
+     *
+     * @param translation Tradução; retorna a quantidade de erros
+     */
+    private boolean translate(IntSupplier translation) {
+        var previousErrors = errorCounter;
+        var translateStart = System.nanoTime();
+        var event = new PhaseEvent();
+        event.begin();
+
+        errorCounter += translation.getAsInt();
+
+        var translateNanos = System.nanoTime() - translateStart;
+        stats.addTranslateNanos(translateNanos);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.document = documentName();
+            event.phase = PhaseEvent.TRANSLATION;
+            event.commit();
+        }
 
-            case BEGIN_QUESTION:
-                // Muda para o contexto QUESTION
-                context.push(Context.QUESTION);
-                tokens.add(new TokenNode(type, params));
-                break;
+        if (metrics != null) {
+            metrics.recordTranslation(translateNanos);
+            metrics.recordErrors(CompilerMetrics.ErrorKind.TRANSLATION, errorCounter - previousErrors);
+        }
 
-            case TEXT:
-                // Muda para o contexto PARAGRAPH
-                context.push(Context.PARAGRAPH);
-                tokens.add(new TokenNode(TokenType.BEGIN_PARAGRAPH, null));
-                tokens.add(new TokenNode(type, params));
-                break;
+        return errorCounter == 0;
+    }
 
-            default:
-                break;
-        }
+    /**
+     * Indica se a compilação pode ser feita em pipeline
+     */
+    private boolean canPipeline() {
+        return pipelined && !fragment && output != null && outputs.isEmpty() && profiler == null
+                && translator instanceof StreamingTranslator streaming && streaming.canStream();
     }
 
     /**
-     * Analisa o token para verificar a corretude sintática no contexto CODE
+     * Compila em pipeline: a leitura e a tradução acontecem em threads próprias, enquanto a análise
+     * acontece na thread atual. A tradução é guardada e só vai para a saída, com os seus erros,
+     * se a análise terminar sem erros. Nesse caso a fase de tradução mede somente a espera pelo fim
+     * da tradução e a cópia da saída.
      *
-     * @param type       Tipo do token
-     * @param params     Parâmetros do token
-     * @param line       Linh do programa
-     * @param lineNumber Número da linha
+     * @param streaming Tradutor
+     * @return V se não houve erro; e F, caso contrário.
      */
-    private void analyzeCode(TokenType type, Map<String, Pair<String, Integer>> params, String line, int lineNumber) {
-
-        switch (type) {
-            case SOURCE_CODE:
-                tokens.add(new TokenNode(type, params));
-                break;
-
-            case END_SOURCE:
-                // Termina o CODE e volta para o contexto anterior
-                context.pop();
-                tokens.add(new TokenNode(type, params));
-                break;
-
-            case EOF:
-                addError("Unexpected EOF", line, lineNumber, 0);
-                break;
+    private boolean compilePipelined(StreamingTranslator streaming) {
+        var stages = new Pipeline();
+        var translationErrors = new Pipeline.DeferredErrors();
+
+        try (var spill = new Pipeline.Spill(SPILL_THRESHOLD);
+             var executor = Executors.newFixedThreadPool(2)) {
+
+            executor.submit(() -> stages.read(reader));
+            var translation = executor.submit(() -> stages.translate(streaming,
+                    new PrintStream(spill, false, output.charset()), translationErrors));
+
+            var parsed = false;
+            var analyzed = false;
+            pipeline = stages;
+
+            try {
+                parsed = parse();
+                stages.finishTokens();
+                analyzed = true;
+            } finally {
+                pipeline = null;
+
+                // Com uma exceção na análise, os outros estágios são interrompidos
+                if (!analyzed)
+                    stages.cancel();
+            }
+
+            if (!parsed) {
+                // A tradução é descartada, como se não tivesse começado
+                stages.cancel();
+                return false;
+            }
+
+            return translate(() -> {
+                int errors;
+
+                try {
+                    errors = translation.get();
+                } catch (ExecutionException e) {
+                    // Um java.lang.Error do tradutor, como falta de memória, é relançado como está
+                    if (e.getCause() instanceof java.lang.Error error)
+                        throw error;
+
+                    throw e.getCause() instanceof RuntimeException cause ? cause
+                            : new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    errorListener.semanticError("Tradução interrompida");
+                    return 1;
+                }
+
+                translationErrors.replay(errorListener);
+
+                try {
+                    spill.transferTo(output);
+                    output.flush();
+                } catch (IOException e) {
+                    errorListener.semanticError("Erro ao gravar a saída: " + e.getMessage());
+                    errors++;
+                }
+
+                return errors;
+            });
+        } catch (IOException e) {
+            // Somente ao apagar o arquivo temporário
+            return errorCounter == 0;
+        }
+    }
 
-            default:
-                break;
+    /**
+     * Traduz para a saída principal, na thread atual, e para as saídas adicionais, em paralelo.
+     * Os erros de cada saída adicional são informados ao seu próprio tratador.
+     *
+     * @param syntax Lista de tokens
+     * @return Total de erros de todas as saídas
+     */
+    private int translateAll(List<TokenNode> syntax) {
+        var results = new ArrayList<Future<Integer>>();
+        var errors = 0;
+
+        try (var executor = Executors.newFixedThreadPool(outputs.size())) {
+            for (var extra : outputs) {
+                results.add(executor.submit(() -> extra.translator().translate(syntax, extra.stream(),
+                        extra.errorListener())));
+            }
+
+            errors += translator.translate(syntax, output, errorListener);
+
+            for (int i = 0; i < results.size(); i++) {
+                var extra = outputs.get(i);
+
+                try {
+                    errors += results.get(i).get();
+                } catch (ExecutionException e) {
+                    extra.errorListener().semanticError("Erro no tradutor " + extra.translator().getClass()
+                            .getSimpleName() + ": " + e.getCause());
+                    errors++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    extra.errorListener().semanticError("Tradução interrompida");
+                    errors++;
+                }
+            }
         }
+
+        return errors;
     }
 
     /**
-     * Analisa o token para verificar a corretude sintática no contexto LIST
+     * Retorna a lista de tokens da última análise
      *
-     * @param type       Tipo do token
-     * @param params     Parâmetros do token
-     * @param line       Linh do programa
-     * @param lineNumber Número da linha
+     * @return Lista de tokens (somente leitura) ou nulo, se ainda não houve análise
      */
-    private void analyseList(TokenType type, Map<String, Pair<String, Integer>> params, String line, int lineNumber) {
+    public List<TokenNode> getTokens() {
+        return tokens == null ? null : Collections.unmodifiableList(tokens);
+    }
 
-        switch (type) {
-            case LIST_ITEM:
-                tokens.add(new TokenNode(type, params));
-                break;
+    /**
+     * Retorna as estatísticas da última compilação
+     *
+     * @return Estatísticas ou nulo, se ainda não houve compilação
+     */
+    public CompileStats getStats() {
+        return stats;
+    }
 
-            case END_LIST:
-                // Termina o LIST e volta para o contexto anterior
-                context.pop();
-                tokens.add(new TokenNode(type, params));
-                break;
+    /**
+     * Método de depuração apenas imprime um ‘token’
+     */
+    private void printToken(TokenNode token) {
+        System.out.printf("Token: %s", token.type().name());
 
-            case EOF:
-                addError("Unexpected EOF", line, lineNumber, 0);
-                break;
+        if (token.params() != null)
+            token.params().forEach((key, value) -> System.out.printf("\n       %s: [%s] [posicao %d]", key,
+                    value.left(), value.right()));
 
-            default:
-                break;
-        }
+        System.out.println();
     }
 
     /**
-     * Analisa o token para verificar a corretude sintática no contexto CONCEPTS
+     * Analisa o token para verificar a corretude sintática de acordo com o contexto.
+     * A ação é consultada na tabela de transições.
      *
+     * @param context    Contexto atual do analisador
      * @param type       Tipo do token
-     * @param params     Parâmetros do token
+     * @param params     Parâmetros do ‘token’
      * @param line       Linh do programa
      * @param lineNumber Número da linha
      */
-    private void analyzeConcepts(TokenType type, Map<String, Pair<String, Integer>> params, String line,
-                                 int lineNumber) {
-
-        switch (type) {
-            case CONCEPT:
-                tokens.add(new TokenNode(type, params));
-                break;
-
-            case END_CONCEPTS:
-                // Termina o CONCEPTS e volta para o contexto anterior
-                context.pop();
-                tokens.add(new TokenNode(type, params));
-                break;
+    private void analyze(Context context, TokenType type, Map<String, Pair<String, Integer>> params, String line,
+                         int lineNumber) {
 
-            case IMAGE:
-                tokens.add(new TokenNode(type, params));
-                break;
+        var transition = table.lookup(context, type);
 
-            case VIDEO:
-                tokens.add(new TokenNode(type, params));
+        switch (transition.action()) {
+            case EMIT:
+                emit(type, params, line, lineNumber);
                 break;
 
-            case BEGIN_SOURCE:
-                // Muda para o contexto CODE
-                context.push(Context.CODE);
-                tokens.add(new TokenNode(type, params));
+            case PUSH:
+                // Muda para o contexto indicado na tabela
+                this.context.push(transition.target());
+                emit(type, params, line, lineNumber);
                 break;
 
-            case BEGIN_LIST:
-                // Muda para o contexto LIST
-                context.push(Context.LIST);
-                tokens.add(new TokenNode(type, params));
+            case POP:
+                // Termina o bloco e volta para o contexto anterior
+                this.context.pop();
+                emit(type, params, line, lineNumber);
                 break;
 
-            case BEGIN_TABLE:
-                // Muda para o contexto TABLE
-                context.push(Context.TABLE);
-                tokens.add(new TokenNode(type, params));
-                break;
-
-            case TEXT:
+            case BEGIN_PARAGRAPH:
                 // Muda para o contexto PARAGRAPH
-                context.push(Context.PARAGRAPH);
-                tokens.add(new TokenNode(TokenType.BEGIN_PARAGRAPH, null));
-                tokens.add(new TokenNode(type, params));
-                break;
-
-            case EOF:
-                addError("Unexpected EOF", line, lineNumber, 0);
-                break;
-
-            default:
+                this.context.push(Context.PARAGRAPH);
+                emit(TokenType.BEGIN_PARAGRAPH, null, line, lineNumber);
+                emit(type, params, line, lineNumber);
                 break;
-        }
-    }
 
-    /**
-     * Analisa o token para verificar a corretude sintática no contexto PARAGRAPH
-     *
-     * @param type       Tipo do token
-     * @param params     Parâmetros do token
-     * @param line       Linh do programa
-     * @param lineNumber Número da linha
-     */
-    private void analyzeParagraph(TokenType type, Map<String, Pair<String, Integer>> params, String line,
-                                  int lineNumber) {
-
-        switch (type) {
-            case TEXT:
-                tokens.add(new TokenNode(type, params));
+            case END_PARAGRAPH:
+                // Termina o PARAGRAPH e volta para o contexto anterior
+                this.context.pop();
+                emit(TokenType.END_PARAGRAPH, null, line, lineNumber);
                 break;
 
-            case BREAK:
-                tokens.add(new TokenNode(type, params));
+            case ERROR:
+                addError(transition.message(), line, lineNumber, 0);
                 break;
 
-            case EMPTY_LINE:
-                // Termina o PARAGRAPH e volta para o contexto anterior
-                context.pop();
-                tokens.add(new TokenNode(TokenType.END_PARAGRAPH, null));
+            case INCLUDE:
+                include(params.get("path"), line, lineNumber);
                 break;
 
             default:
@@ -427,164 +711,156 @@ public class Parser {
     }
 
     /**
-     * Analisa o token para verificar a corretude sintática no contexto TABLE
+     * Adiciona um token à lista e o repassa ao analisador semântico
      *
      * @param type       Tipo do token
      * @param params     Parâmetros do token
-     * @param line       Linh do programa
+     * @param line       Linha do programa que originou o token
      * @param lineNumber Número da linha
      */
-    private void analyzeTable(TokenType type, Map<String, Pair<String, Integer>> params, String line, int lineNumber) {
-
-        switch (type) {
-            case TABLE_ROW:
-                tokens.add(new TokenNode(type, params));
-                break;
-
-            case END_TABLE:
-                // Termina o TABLE e volta para o contexto anterior
-                context.pop();
-                tokens.add(new TokenNode(type, params));
-                break;
-
-            case EOF:
-                this.addError("Unexpected EOF", line, lineNumber, lineNumber);
-                break;
-
-            default:
-                break;
-        }
+    private void emit(TokenType type, Map<String, Pair<String, Integer>> params, String line, int lineNumber) {
+        emit(type, params, line, lineNumber, null, lineNumber);
     }
 
     /**
-     * Analisa o token para verificar a corretude sintática no contexto SCENARIO
+     * Adiciona um token à lista e o repassa ao analisador semântico com a sua origem
      *
      * @param type       Tipo do token
      * @param params     Parâmetros do token
-     * @param line       Linh do programa
+     * @param line       Linha do programa que originou o token
      * @param lineNumber Número da linha
+     * @param origin     Arquivo incluído de onde veio o token (nulo: o próprio programa)
+     * @param originLine Número da linha no arquivo de origem
      */
-    private void analyzeScenario(TokenType type, Map<String, Pair<String, Integer>> params, String line,
-                                 int lineNumber) {
+    private void emit(TokenType type, Map<String, Pair<String, Integer>> params, String line, int lineNumber,
+                      Path origin, int originLine) {
+        var token = new TokenNode(type, params, lineNumber);
 
-        switch (type) {
+        tokenCount++;
 
-            case IMAGE:
-                tokens.add(new TokenNode(type, params));
-                break;
+        if (keepingTokens)
+            tokens.add(token);
+        else if (printSyntax)
+            printToken(token);
 
-            case VIDEO:
-                tokens.add(new TokenNode(type, params));
-                break;
-
-            case BEGIN_SOURCE:
-                // Muda para o contexto CODE
-                context.push(Context.CODE);
-                tokens.add(new TokenNode(type, params));
-                break;
+        if (pipeline != null)
+            pipeline.emit(token);
 
-            case BEGIN_LIST:
-                // Muda para o contexto LIST
-                context.push(Context.LIST);
-                tokens.add(new TokenNode(type, params));
-                break;
-
-            case BEGIN_TABLE:
-                // Muda para o contexto TABLE
-                context.push(Context.TABLE);
-                tokens.add(new TokenNode(type, params));
-                break;
+        if (fragment) {
+            tokenLines.add(line);
+            tokenFiles.add(origin == null ? sourcePath : origin);
+            return;
+        }
 
-            case TEXT:
-                // Muda para o contexto PARAGRAPH
-                context.push(Context.PARAGRAPH);
-                tokens.add(new TokenNode(TokenType.BEGIN_PARAGRAPH, null));
-                tokens.add(new TokenNode(type, params));
-                break;
+        if (metrics != null)
+            metrics.recordToken(type);
 
-            case STEP:
-                tokens.add(new TokenNode(type, params));
-                break;
+        // O analisador semântico vê a linha do arquivo incluído, e não a do #include
+        var analysed = origin == null ? token : new TokenNode(type, params, originLine);
+        var file = origin == null ? null : origin.getFileName().toString();
 
-            case END_SCENARIO:
-                // Termina o SCENARIO e volta para o contexto anterior
-                context.pop();
-                tokens.add(new TokenNode(type, params));
-                break;
+        if (metrics == null) {
+            semanticAnalyser.analyse(analysed, line, file);
+        } else {
+            var semanticStart = System.nanoTime();
+            semanticAnalyser.analyse(analysed, line, file);
 
-            case EOF:
-                this.addError("Unexpected EOF", line, lineNumber, lineNumber);
-                break;
-
-            default:
-                break;
+            var semanticNanos = System.nanoTime() - semanticStart;
+            metrics.recordSemantic(semanticNanos);
+            lineSemanticNanos += semanticNanos;
         }
     }
 
     /**
-     * Analisa o token para verificar a corretude sintática no contexto QUESTION
+     * Insere os tokens de um arquivo incluído. Os tokens recebem o número da linha do #include; o analisador
+     * semântico e os erros do arquivo incluído usam a linha e o nome do arquivo de origem.
      *
-     * @param type       Tipo do token
-     * @param params     Parâmetros do token
-     * @param line       Linh do programa
-     * @param lineNumber Número da linha
+     * @param path       Caminho do arquivo, relativo ao arquivo atual
+     * @param line       Linha do #include
+     * @param lineNumber Número da linha do #include
      */
-    private void analyzeQuestion(TokenType type, Map<String, Pair<String, Integer>> params, String line,
-                                 int lineNumber) {
-
-        switch (type) {
-            case IMAGE:
-                tokens.add(new TokenNode(type, params));
-                break;
+    private void include(Pair<String, Integer> path, String line, int lineNumber) {
+        var folder = sourcePath == null ? Path.of("").toAbsolutePath() : sourcePath.getParent();
+        var file = folder.resolve(path.left()).normalize();
 
-            case VIDEO:
-                tokens.add(new TokenNode(type, params));
-                break;
-
-            case BEGIN_SOURCE:
-                // Muda para o contexto CODE
-                context.push(Context.CODE);
-                tokens.add(new TokenNode(type, params));
-                break;
+        if (file.equals(sourcePath) || includeChain.contains(file)) {
+            addError("Circular #include: " + file.getFileName(), line, lineNumber, path.right());
+            return;
+        }
 
-            case BEGIN_LIST:
-                // Muda para o contexto LIST
-                context.push(Context.LIST);
-                tokens.add(new TokenNode(type, params));
-                break;
+        FragmentCache.Fragment included;
 
-            case BEGIN_TABLE:
-                // Muda para o contexto TABLE
-                context.push(Context.TABLE);
-                tokens.add(new TokenNode(type, params));
-                break;
+        try {
+            included = fragments.get(file, this::parseFragment);
+        } catch (IOException e) {
+            addError("Included file not found: " + path.left(), line, lineNumber, path.right());
+            return;
+        }
 
-            case TEXT:
-                // Muda para o contexto PARAGRAPH
-                context.push(Context.PARAGRAPH);
-                tokens.add(new TokenNode(TokenType.BEGIN_PARAGRAPH, null));
-                tokens.add(new TokenNode(type, params));
-                break;
+        dependencies.putAll(included.dependencies());
 
-            case ANSWER:
-                tokens.add(new TokenNode(type, params));
-                break;
+        for (var diagnostic : included.errors()) {
+            var error = diagnostic.error();
 
-            case END_QUESTION:
-                // Termina o QUESTION e volta para o contexto anterior
-                context.pop();
-                tokens.add(new TokenNode(type, params));
-                break;
+            // Num arquivo incluído, o erro só é reportado por quem inclui o primeiro arquivo
+            if (fragment)
+                includedErrors.add(diagnostic);
+            else
+                errorListener.syntaxError(error.getErrorMessage() + " (" + diagnostic.file().getFileName() + ")",
+                        error.getLineContent(), error.getLineNumber(), -1);
 
-            case EOF:
-                this.addError("Unexpected EOF", line, lineNumber, lineNumber);
-                break;
+            errorCounter++;
+        }
 
-            default:
-                break;
+        // Os tokens de um arquivo incluído mantêm a linha de origem até chegarem ao programa
+        for (int i = 0; i < included.tokens().size(); i++) {
+            var token = included.tokens().get(i);
+            emit(token.type(), token.params(), included.lines().get(i), fragment ? token.lineNumber() : lineNumber,
+                    included.files().get(i), token.lineNumber());
         }
     }
 
+    /**
+     * Analisa um arquivo incluído com um Parser próprio, que compartilha o cache e a cadeia de inclusões
+     *
+     * @param file     Arquivo incluído
+     * @param checksum Checksum do conteúdo
+     * @return Fragmento analisado
+     * @throws IOException Se o arquivo não puder ser lido
+     */
+    private FragmentCache.Fragment parseFragment(Path file, long checksum) throws IOException {
+        var listener = new JsonErrorListener();
+        var parser = new Parser(new LineStore(Files.newBufferedReader(file)), null, listener);
+
+        parser.sourcePath = file;
+        parser.fragments = fragments;
+        parser.table = table;
+        parser.fragment = true;
+        parser.metrics = metrics;
+        parser.tokenLines = new ArrayList<>();
+        parser.tokenFiles = new ArrayList<>();
+        parser.includedErrors = new ArrayList<>();
+
+        var chain = new ArrayList<>(includeChain);
+        if (sourcePath != null)
+            chain.add(sourcePath);
+        parser.includeChain = chain;
+
+        parser.parse();
+
+        var fileDependencies = new LinkedHashMap<Path, Long>();
+        fileDependencies.put(file, checksum);
+        fileDependencies.putAll(parser.dependencies);
+
+        var errors = new ArrayList<FragmentCache.Diagnostic>();
+        for (var error : listener.getErrors())
+            errors.add(new FragmentCache.Diagnostic(error, file));
+        errors.addAll(parser.includedErrors);
+
+        return new FragmentCache.Fragment(List.copyOf(parser.tokens), Collections.unmodifiableList(parser.tokenLines),
+                List.copyOf(parser.tokenFiles), List.copyOf(errors), Collections.unmodifiableMap(fileDependencies));
+    }
+
     /**
      * Chama o tratador de erros e incrementa o contador
      *
@@ -597,4 +873,10 @@ public class Parser {
         errorListener.syntaxError(errorMsg, line, lineNumber, position);
         errorCounter++;
     }
+
+    /**
+     * Saída adicional: tradutor, fluxo e tratador de erros
+     */
+    private record Output(Translator translator, PrintStream stream, JsonErrorListener errorListener) {
+    }
 }
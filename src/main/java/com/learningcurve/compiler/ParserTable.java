@@ -0,0 +1,185 @@
+package com.learningcurve.compiler;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+
+/**
+ * Tabela de transições do analisador sintático: (Contexto x Token) -> Ação.
+ * Cada célula diz o que o Parser deve fazer quando encontra um token num contexto.
+ * Combinações não definidas são ignoradas, como nos switch originais.
+ */
+public class ParserTable {
+
+	/**
+	 * Ações possíveis do analisador sintático
+	 */
+	public enum Action {
+		// Ignora o token
+		IGNORE,
+		// Emite o token e permanece no contexto atual
+		EMIT,
+		// Emite o token e empilha um novo contexto
+		PUSH,
+		// Emite o token e volta para o contexto anterior
+		POP,
+		// Empilha o contexto PARAGRAPH, emite BEGIN_PARAGRAPH e depois o token
+		BEGIN_PARAGRAPH,
+		// Volta para o contexto anterior e emite END_PARAGRAPH no lugar do token
+		END_PARAGRAPH,
+		// Reporta um erro sintático
+		ERROR,
+		// Insere no lugar do token os tokens de outro arquivo
+		INCLUDE
+	}
+
+	/**
+	 * Uma célula da tabela
+	 *
+	 * @param action  Ação a executar
+	 * @param target  Contexto a empilhar (somente para PUSH)
+	 * @param message Mensagem de erro (somente para ERROR)
+	 */
+	public record Transition(Action action, Context target, String message) {
+	}
+
+	private static final Transition IGNORE = new Transition(Action.IGNORE, null, null);
+	private static final Transition EMIT = new Transition(Action.EMIT, null, null);
+	private static final Transition POP = new Transition(Action.POP, null, null);
+	private static final Transition BEGIN_PARAGRAPH = new Transition(Action.BEGIN_PARAGRAPH, null, null);
+	private static final Transition END_PARAGRAPH = new Transition(Action.END_PARAGRAPH, null, null);
+	private static final Transition INCLUDE = new Transition(Action.INCLUDE, null, null);
+
+	// Contextos que aceitam blocos (imagem, vídeo, código, lista, tabela e parágrafo)
+	private static final EnumSet<Context> BLOCK_CONTEXTS = EnumSet.of(Context.DEFAULT, Context.CONCEPTS,
+			Context.SCENARIO, Context.QUESTION);
+
+	// Transições indexadas por [Context.ordinal()][TokenType.ordinal()]
+	private final Transition[][] table;
+
+	/**
+	 * Cria uma tabela vazia, na qual todas as combinações são ignoradas
+	 */
+	public ParserTable() {
+		table = new Transition[Context.values().length][TokenType.values().length];
+
+		for (var row : table) {
+			Arrays.fill(row, IGNORE);
+		}
+	}
+
+	/**
+	 * Cria a tabela com a gramática da linguagem LCML
+	 *
+	 * @return Tabela de transições padrão
+	 */
+	public static ParserTable standard() {
+		var table = new ParserTable();
+
+		// Blocos aceitos no texto principal e dentro de conceitos, cenários e questões
+		for (var context : BLOCK_CONTEXTS) {
+			table.emit(context, TokenType.IMAGE, TokenType.VIDEO);
+			table.push(context, TokenType.BEGIN_SOURCE, Context.CODE);
+			table.push(context, TokenType.BEGIN_LIST, Context.LIST);
+			table.push(context, TokenType.BEGIN_TABLE, Context.TABLE);
+			table.beginParagraph(context, TokenType.TEXT);
+		}
+
+		// DEFAULT
+		table.emit(Context.DEFAULT, TokenType.HEADER1, TokenType.HEADER2, TokenType.HEADER3);
+		table.push(Context.DEFAULT, TokenType.BEGIN_CONCEPTS, Context.CONCEPTS);
+		table.push(Context.DEFAULT, TokenType.BEGIN_SCENARIO, Context.SCENARIO);
+		table.push(Context.DEFAULT, TokenType.BEGIN_QUESTION, Context.QUESTION);
+		table.include(Context.DEFAULT, TokenType.INCLUDE);
+
+		// PARAGRAPH
+		table.emit(Context.PARAGRAPH, TokenType.TEXT, TokenType.BREAK);
+		table.endParagraph(Context.PARAGRAPH, TokenType.EMPTY_LINE);
+
+		// CODE
+		table.emit(Context.CODE, TokenType.SOURCE_CODE);
+		table.pop(Context.CODE, TokenType.END_SOURCE);
+
+		// LIST
+		table.emit(Context.LIST, TokenType.LIST_ITEM);
+		table.pop(Context.LIST, TokenType.END_LIST);
+
+		// CONCEPTS
+		table.emit(Context.CONCEPTS, TokenType.CONCEPT);
+		table.pop(Context.CONCEPTS, TokenType.END_CONCEPTS);
+
+		// TABLE
+		table.emit(Context.TABLE, TokenType.TABLE_ROW);
+		table.pop(Context.TABLE, TokenType.END_TABLE);
+
+		// SCENARIO
+		table.emit(Context.SCENARIO, TokenType.STEP);
+		table.pop(Context.SCENARIO, TokenType.END_SCENARIO);
+
+		// QUESTION
+		table.emit(Context.QUESTION, TokenType.ANSWER);
+		table.pop(Context.QUESTION, TokenType.END_QUESTION);
+
+		// Blocos que precisam ser fechados não podem terminar no fim do arquivo
+		for (var context : EnumSet.of(Context.CODE, Context.LIST, Context.CONCEPTS, Context.TABLE,
+				Context.SCENARIO, Context.QUESTION)) {
+			table.error(context, TokenType.EOF, "Unexpected EOF");
+		}
+
+		return table;
+	}
+
+	/**
+	 * Consulta a ação para um token num contexto
+	 *
+	 * @param context Contexto atual
+	 * @param type    Tipo do token
+	 * @return Transição (nunca nula)
+	 */
+	public Transition lookup(Context context, TokenType type) {
+		return table[context.ordinal()][type.ordinal()];
+	}
+
+	/**
+	 * Define uma célula da tabela
+	 *
+	 * @param context    Contexto
+	 * @param type       Tipo do token
+	 * @param transition Transição
+	 * @return A própria tabela
+	 */
+	public ParserTable on(Context context, TokenType type, Transition transition) {
+		table[context.ordinal()][type.ordinal()] = transition;
+		return this;
+	}
+
+	public ParserTable emit(Context context, TokenType... types) {
+		for (var type : types) {
+			on(context, type, EMIT);
+		}
+		return this;
+	}
+
+	public ParserTable push(Context context, TokenType type, Context target) {
+		return on(context, type, new Transition(Action.PUSH, target, null));
+	}
+
+	public ParserTable pop(Context context, TokenType type) {
+		return on(context, type, POP);
+	}
+
+	public ParserTable beginParagraph(Context context, TokenType type) {
+		return on(context, type, BEGIN_PARAGRAPH);
+	}
+
+	public ParserTable endParagraph(Context context, TokenType type) {
+		return on(context, type, END_PARAGRAPH);
+	}
+
+	public ParserTable include(Context context, TokenType type) {
+		return on(context, type, INCLUDE);
+	}
+
+	public ParserTable error(Context context, TokenType type, String message) {
+		return on(context, type, new Transition(Action.ERROR, null, message));
+	}
+}
@@ -0,0 +1,292 @@
+package com.learningcurve.compiler;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+import com.learningcurve.compiler.adapter.ErrorListener;
+import com.learningcurve.compiler.adapter.StreamingTranslator;
+import com.learningcurve.compiler.adapter.TextReader;
+
+/**
+ * Estágios da compilação em pipeline, cada um na sua thread: leitura das linhas, análise (léxica,
+ * sintática e semântica) e tradução. Os estágios trocam lotes de linhas e de tokens por filas
+ * circulares limitadas, e a fila cheia faz o estágio anterior esperar.
+ * <p>
+ * A tradução começa antes do fim da análise, por isso a saída vai para um Spill e os erros do tradutor
+ * para um DeferredErrors; o Parser só os repassa se a análise terminar sem erros, como na compilação
+ * sequencial.
+ */
+final class Pipeline {
+
+	// Linhas ou tokens por lote e lotes por fila
+	static final int BATCH_SIZE = 256;
+	static final int RING_SIZE = 16;
+
+	/**
+	 * Lote de linhas do programa e os seus números; a linha nula indica o fim do programa
+	 */
+	static final class Lines {
+		final String[] text = new String[BATCH_SIZE];
+		final int[] numbers = new int[BATCH_SIZE];
+		int size;
+	}
+
+	/**
+	 * Lote de tokens emitidos pela análise
+	 */
+	static final class Tokens {
+		final TokenNode[] items = new TokenNode[BATCH_SIZE];
+		int size;
+	}
+
+	/**
+	 * Análise de uma linha
+	 */
+	interface LineAnalyzer {
+
+		/**
+		 * @return V se a linha era o fim do programa
+		 */
+		boolean analyze(String line, int lineNumber);
+	}
+
+	private final BatchRing<Lines> lines = new BatchRing<>(RING_SIZE, Lines::new);
+	private final BatchRing<Tokens> tokens = new BatchRing<>(RING_SIZE, Tokens::new);
+
+	// Lote de tokens sendo preenchido pela análise (nulo: nenhum) e fim da tradução antes da hora
+	private Tokens pending;
+	private boolean translationStopped;
+
+	/**
+	 * Estágio de leitura: lê o programa até o fim e publica as linhas em lotes
+	 *
+	 * @param reader Leitor das linhas do programa
+	 */
+	void read(TextReader reader) {
+		try {
+			for (var eof = false; !eof; lines.publish()) {
+				var batch = lines.claim();
+				batch.size = 0;
+
+				while (batch.size < BATCH_SIZE && !eof) {
+					var line = reader.readLine();
+
+					batch.text[batch.size] = line;
+					batch.numbers[batch.size++] = reader.currentLineNumber();
+					eof = line == null;
+				}
+			}
+
+			lines.close();
+		} catch (CancellationException e) {
+			// A análise terminou antes do fim do programa
+		} catch (RuntimeException | java.lang.Error e) {
+			// Também um Error, como falta de memória numa linha enorme: sem isso a análise esperaria para sempre
+			lines.fail(e);
+		}
+	}
+
+	/**
+	 * Estágio de análise, na thread atual: analisa as linhas lidas até o fim do programa.
+	 * Um erro de leitura (RuntimeException ou Error) é relançado aqui.
+	 *
+	 * @param analyzer Análise de cada linha
+	 */
+	void analyze(LineAnalyzer analyzer) {
+		var eof = false;
+
+		for (Lines batch; !eof && (batch = lines.next()) != null; lines.release()) {
+			for (int i = 0; i < batch.size && !eof; i++) {
+				eof = analyzer.analyze(batch.text[i], batch.numbers[i]);
+			}
+		}
+	}
+
+	/**
+	 * Estágio de análise: envia um token emitido para a tradução
+	 */
+	void emit(TokenNode token) {
+		if (translationStopped)
+			return;
+
+		try {
+			if (pending == null) {
+				pending = tokens.claim();
+				pending.size = 0;
+			}
+
+			pending.items[pending.size++] = token;
+
+			if (pending.size == BATCH_SIZE) {
+				tokens.publish();
+				pending = null;
+			}
+		} catch (CancellationException e) {
+			// O tradutor falhou; a falha é tratada no fim da análise
+			translationStopped = true;
+		}
+	}
+
+	/**
+	 * Estágio de análise: não há mais tokens
+	 */
+	void finishTokens() {
+		if (pending != null && !translationStopped)
+			tokens.publish();
+
+		pending = null;
+		tokens.close();
+	}
+
+	/**
+	 * Interrompe todos os estágios
+	 */
+	void cancel() {
+		lines.cancel();
+		tokens.cancel();
+	}
+
+	/**
+	 * Estágio de tradução: traduz os tokens à medida que são publicados
+	 *
+	 * @param translator    Tradutor
+	 * @param output        Saída da tradução
+	 * @param errorListener Tratador dos erros da tradução
+	 * @return Quantidade de erros
+	 */
+	int translate(StreamingTranslator translator, PrintStream output, ErrorListener errorListener) {
+		try {
+			translator.begin(output, errorListener);
+
+			for (Tokens batch; (batch = tokens.next()) != null; tokens.release()) {
+				for (int i = 0; i < batch.size; i++) {
+					translator.accept(batch.items[i]);
+				}
+			}
+
+			return translator.end();
+		} catch (RuntimeException | java.lang.Error e) {
+			// Libera a análise, que pode estar esperando uma posição livre na fila
+			tokens.cancel();
+			throw e;
+		}
+	}
+
+	/**
+	 * Saída guardada até o fim da análise: na memória até um limite e, acima dele, num arquivo temporário
+	 */
+	static final class Spill extends OutputStream {
+
+		private final int threshold;
+		private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+		private Path file;
+		private OutputStream fileOutput;
+
+		// Primeiro erro de gravação, informado em transferTo
+		private IOException error;
+
+		/**
+		 * @param threshold Bytes guardados na memória antes de passar para o arquivo temporário
+		 */
+		Spill(int threshold) {
+			this.threshold = threshold;
+		}
+
+		@Override
+		public void write(int b) {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) {
+			if (error != null)
+				return;
+
+			try {
+				if (memory != null && memory.size() + length > threshold) {
+					file = Files.createTempFile("lcml", ".spill");
+					fileOutput = new BufferedOutputStream(Files.newOutputStream(file));
+					memory.writeTo(fileOutput);
+					memory = null;
+				}
+
+				if (memory != null)
+					memory.write(bytes, offset, length);
+				else
+					fileOutput.write(bytes, offset, length);
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+
+		/**
+		 * Copia a saída guardada
+		 *
+		 * @param output Destino
+		 * @throws IOException Se houve erro ao guardar ou ao ler a saída
+		 */
+		void transferTo(OutputStream output) throws IOException {
+			if (error != null)
+				throw error;
+
+			if (memory != null) {
+				memory.writeTo(output);
+				return;
+			}
+
+			fileOutput.flush();
+			Files.copy(file, output);
+		}
+
+		@Override
+		public void close() throws IOException {
+			memory = null;
+
+			if (file != null) {
+				fileOutput.close();
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	/**
+	 * Guarda as chamadas ao tratador de erros para repeti-las depois, na mesma ordem
+	 */
+	static final class DeferredErrors implements ErrorListener {
+
+		private final List<Consumer<ErrorListener>> calls = new ArrayList<>();
+
+		@Override
+		public void syntaxError(String errorMsg, String line, int lineNumber, int position) {
+			calls.add(listener -> listener.syntaxError(errorMsg, line, lineNumber, position));
+		}
+
+		@Override
+		public void semanticError(String errorMsg) {
+			calls.add(listener -> listener.semanticError(errorMsg));
+		}
+
+		@Override
+		public void semanticError(String errorMsg, String line, int lineNumber) {
+			calls.add(listener -> listener.semanticError(errorMsg, line, lineNumber));
+		}
+
+		@Override
+		public void semanticWarning(String warningMsg, String line, int lineNumber) {
+			calls.add(listener -> listener.semanticWarning(warningMsg, line, lineNumber));
+		}
+
+		void replay(ErrorListener listener) {
+			calls.forEach(call -> call.accept(listener));
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package com.learningcurve.compiler;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Índice de busca de um conjunto de documentos, gerado na compilação a partir dos índices de cada documento.
+ *
+ * Formato do arquivo:
+ * <pre>
+ * "LCMX" | versão (varint)
+ * quantidade de documentos (varint) | para cada documento: nome (tamanho + UTF-8)
+ * quantidade de termos (varint) | para cada termo, em ordem:
+ *     bytes em comum com o termo anterior (varint) | restante do termo (tamanho + UTF-8)
+ *     quantidade de ocorrências (varint) | para cada ocorrência:
+ *         diferença para o documento anterior (varint) | campos (varint) | frequência (varint)
+ * </pre>
+ */
+public class SearchIndex {
+
+	/**
+	 * Ocorrência de um termo num documento
+	 *
+	 * @param document  Índice do documento
+	 * @param fields    Campos em que o termo aparece (DocumentIndex.FIELD_*)
+	 * @param frequency Quantidade de vezes que o termo aparece
+	 */
+	public record Posting(int document, int fields, int frequency) {
+	}
+
+	public static final int VERSION = 1;
+
+	private static final byte[] MAGIC = { 'L', 'C', 'M', 'X' };
+
+	private final List<String> documents;
+
+	private final SortedMap<String, List<Posting>> terms;
+
+	private SearchIndex(List<String> documents, SortedMap<String, List<Posting>> terms) {
+		this.documents = documents;
+		this.terms = terms;
+	}
+
+	/**
+	 * Junta os índices dos documentos em paralelo. Os documentos são numerados na ordem da lista.
+	 *
+	 * @param indexes Índices de cada documento
+	 * @return Índice do conjunto
+	 */
+	public static SearchIndex merge(List<DocumentIndex> indexes) {
+		Map<String, List<Posting>> merged = IntStream.range(0, indexes.size()).parallel().boxed()
+				.flatMap(document -> indexes.get(document).getTerms().entrySet().stream()
+						.map(term -> Map.entry(term.getKey(),
+								new Posting(document, term.getValue()[0], term.getValue()[1]))))
+				.collect(Collectors.groupingByConcurrent(Map.Entry::getKey,
+						Collectors.mapping(Map.Entry::getValue, Collectors.toList())));
+
+		// As ocorrências de cada termo ficam em ordem de documento
+		merged.values().parallelStream().forEach(postings -> postings.sort(Comparator.comparingInt(Posting::document)));
+
+		var documents = indexes.stream().map(DocumentIndex::getDocument).toList();
+		return new SearchIndex(documents, new TreeMap<>(merged));
+	}
+
+	public List<String> getDocuments() {
+		return documents;
+	}
+
+	public int getTermCount() {
+		return terms.size();
+	}
+
+	/**
+	 * Retorna as ocorrências de um termo
+	 *
+	 * @param term Termo (é normalizado como na indexação)
+	 * @return Ocorrências em ordem de documento ou lista vazia
+	 */
+	public List<Posting> lookup(String term) {
+		var normalized = DocumentIndex.terms(term);
+
+		if (normalized.size() != 1)
+			return List.of();
+
+		return Collections.unmodifiableList(terms.getOrDefault(normalized.get(0), List.of()));
+	}
+
+	/**
+	 * Procura os documentos que contêm todos os termos da consulta
+	 *
+	 * @param query Consulta
+	 * @return Nomes dos documentos, em ordem decrescente de frequência total
+	 */
+	public List<String> search(String query) {
+		Map<Integer, Integer> scores = null;
+
+		for (var term : DocumentIndex.terms(query)) {
+			var found = new HashMap<Integer, Integer>();
+
+			for (var posting : terms.getOrDefault(term, List.of())) {
+				if (scores == null || scores.containsKey(posting.document()))
+					found.put(posting.document(),
+							posting.frequency() + (scores == null ? 0 : scores.get(posting.document())));
+			}
+
+			scores = found;
+		}
+
+		if (scores == null)
+			return List.of();
+
+		return scores.entrySet().stream()
+				.sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+						.thenComparing(Map.Entry.comparingByKey()))
+				.map(entry -> documents.get(entry.getKey()))
+				.toList();
+	}
+
+	/**
+	 * Grava o índice com o dicionário de termos ordenado e as ocorrências de cada termo
+	 *
+	 * @param file Arquivo do índice
+	 * @throws IOException Em caso de erro de gravação
+	 */
+	public void write(Path file) throws IOException {
+		var out = new BinaryEncoder();
+
+		out.write(MAGIC, 0, MAGIC.length);
+		out.writeVarint(VERSION);
+		out.writeVarint(documents.size());
+
+		for (var document : documents) {
+			out.writeString(document);
+		}
+
+		out.writeVarint(terms.size());
+
+		var previous = new byte[0];
+
+		for (var entry : terms.entrySet()) {
+			// Termos vizinhos costumam ter o mesmo prefixo; grava somente o que muda
+			var term = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			var common = Arrays.mismatch(previous, term);
+			common = common < 0 ? term.length : common;
+
+			out.writeVarint(common);
+			out.writeBytes(term, common, term.length - common);
+			out.writeVarint(entry.getValue().size());
+
+			var previousDocument = 0;
+
+			for (var posting : entry.getValue()) {
+				out.writeVarint(posting.document() - previousDocument);
+				out.writeVarint(posting.fields());
+				out.writeVarint(posting.frequency());
+				previousDocument = posting.document();
+			}
+
+			previous = term;
+		}
+
+		Files.write(file, out.toByteArray());
+	}
+
+	/**
+	 * Lê um índice gravado por write
+	 *
+	 * @param file Arquivo do índice
+	 * @return Índice
+	 * @throws IOException Em caso de erro de leitura ou se o arquivo não for um índice desta versão
+	 */
+	public static SearchIndex read(Path file) throws IOException {
+		var buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+
+		try {
+			for (var b : MAGIC) {
+				if (buffer.get() != b)
+					throw new IOException("Arquivo não é um índice de busca: " + file);
+			}
+
+			if (BinaryEncoder.readVarint(buffer) != VERSION)
+				throw new IOException("Versão do índice de busca não suportada: " + file);
+
+			var documents = new ArrayList<String>();
+			var documentCount = BinaryEncoder.readCount(buffer);
+
+			for (int i = 0; i < documentCount; i++) {
+				documents.add(BinaryEncoder.readString(buffer));
+			}
+
+			var terms = new TreeMap<String, List<Posting>>();
+			var termCount = BinaryEncoder.readCount(buffer);
+			var previous = new byte[0];
+
+			for (int i = 0; i < termCount; i++) {
+				var common = BinaryEncoder.readVarint(buffer);
+				var suffix = BinaryEncoder.readBytes(buffer);
+				var term = Arrays.copyOf(previous, common + suffix.length);
+				System.arraycopy(suffix, 0, term, common, suffix.length);
+
+				var count = BinaryEncoder.readCount(buffer);
+				var postings = new ArrayList<Posting>(count);
+				var document = 0;
+
+				for (int p = 0; p < count; p++) {
+					document += BinaryEncoder.readVarint(buffer);
+					postings.add(new Posting(document, BinaryEncoder.readVarint(buffer),
+							BinaryEncoder.readVarint(buffer)));
+				}
+
+				terms.put(new String(term, StandardCharsets.UTF_8), postings);
+				previous = term;
+			}
+
+			return new SearchIndex(documents, terms);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+			throw new IOException("Índice de busca corrompido: " + file, e);
+		}
+	}
+}
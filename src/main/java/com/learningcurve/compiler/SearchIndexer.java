@@ -0,0 +1,84 @@
+package com.learningcurve.compiler;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import com.learningcurve.compiler.adapter.ErrorListener;
+import com.learningcurve.compiler.adapter.Translator;
+
+/**
+ * Etapa de indexação: percorre os tokens junto com os demais tradutores (Parser.addOutput)
+ * e monta o índice invertido do documento com os cabeçalhos, conceitos, parágrafos e questões.
+ * Não escreve nada na saída.
+ */
+public class SearchIndexer implements Translator {
+
+	private final DocumentIndex index;
+
+	/**
+	 * @param document Nome do documento no índice
+	 */
+	public SearchIndexer(String document) {
+		this.index = new DocumentIndex(document);
+	}
+
+	public DocumentIndex getIndex() {
+		return index;
+	}
+
+	@Override
+	public int translate(List<TokenNode> syntax, PrintStream output, ErrorListener errorListener) {
+		var inQuestion = false;
+
+		for (var token : syntax) {
+			switch (token.type()) {
+				case HEADER1:
+				case HEADER2:
+				case HEADER3:
+					add(token, "title", DocumentIndex.FIELD_HEADER);
+					break;
+
+				case CONCEPT:
+					add(token, "concept", DocumentIndex.FIELD_CONCEPT);
+					break;
+
+				case TEXT:
+					// O enunciado da questão é um parágrafo dentro do bloco
+					add(token, "paragraph", inQuestion ? DocumentIndex.FIELD_QUESTION : DocumentIndex.FIELD_TEXT);
+					break;
+
+				case ANSWER:
+					add(token, "option", DocumentIndex.FIELD_QUESTION);
+					break;
+
+				case BEGIN_QUESTION:
+					inQuestion = true;
+					break;
+
+				case END_QUESTION:
+					inQuestion = false;
+					break;
+
+				default:
+					break;
+			}
+		}
+
+		return 0;
+	}
+
+	private void add(TokenNode token, String param, int field) {
+		var text = new StringBuilder();
+		appendPlain(InlineMarkup.parse(token.params().get(param).left()), text);
+		index.add(text.toString(), field);
+	}
+
+	private static void appendPlain(List<InlineMarkup.Span> spans, StringBuilder target) {
+		for (var span : spans) {
+			if (span.text() != null)
+				target.append(span.text());
+			else if (span.children() != null)
+				appendPlain(span.children(), target);
+		}
+	}
+}
@@ -1,59 +1,261 @@
 package com.learningcurve.compiler;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
-import com.learningcurve.compiler.adapter.ErrorListener;
+import com.learningcurve.compiler.adapter.SemanticRule;
+import com.learningcurve.compiler.rules.DuplicateHeaderRule;
+import com.learningcurve.compiler.rules.EmptyTableRule;
+import com.learningcurve.compiler.rules.MediaDimensionRule;
+import com.learningcurve.compiler.rules.QuestionAnswersRule;
+import com.learningcurve.compiler.rules.TableColumnCountRule;
+import com.learningcurve.compiler.rules.UnusedConceptRule;
 
+/**
+ * Analisador semântico baseado em regras.
+ * Cada regra se inscreve nos tipos de token que lhe interessam e o analisador
+ * despacha cada token uma única vez, apenas para as regras interessadas.
+ */
 public class SemanticAnalyser {
-    private int errorCounter = 0;
-    private JsonErrorListener errorListener;
-    private int correctAnswerCounter = 0;
-    private int optionCounter = 0;
 
-    private void addError(String mensagem) {
-        this.errorListener.semanticError(mensagem);
-        this.errorCounter++;
+    // Regras registradas, na ordem de registro
+    private final List<SemanticRule> rules = new ArrayList<>();
+
+    // Índices (em 'rules') das regras interessadas em cada tipo de token
+    private final EnumMap<TokenType, int[]> dispatch = new EnumMap<>(TokenType.class);
+
+    // Tempo gasto por regra (nanossegundos), indexado pela posição da regra em 'rules'
+    private long[] ruleNanos = new long[0];
+
+    // Indica se o tempo de cada regra deve ser medido
+    private boolean timing = false;
+
+    // Erros e avisos encontrados durante a análise, reportados somente no final da compilação
+    private final List<Error> pendingErrors = new ArrayList<>();
+    private final List<Error> pendingWarnings = new ArrayList<>();
+
+    // Arquivo incluído de onde veio o token sendo analisado (nulo: o próprio programa)
+    private String origin;
+
+    /**
+     * Cria o analisador com as regras padrão da linguagem
+     */
+    public SemanticAnalyser() {
+        register(new QuestionAnswersRule());
+        register(new DuplicateHeaderRule());
+        register(new EmptyTableRule());
+        register(new TableColumnCountRule());
+        register(new MediaDimensionRule());
+        register(new UnusedConceptRule());
     }
 
     /**
-     * Analisa a estrutura sintática para verificar se a sua semântica está correta.
-     * Por enquanto, apenas na estrutura de
-     * Questão, até o momento, possui condições que apesar de não serem erradas do
-     * ponto de vista sintático, não fazem
-     * sentido do ponto de vista semântico.
+     * Registra uma nova regra semântica. É final porque o construtor o chama para as regras padrão.
      *
-     * @param syntax
-     * @return errorCounter
+     * @param rule Regra
      */
-    public int analyse(List<TokenNode> syntax, JsonErrorListener errorListener) {
-        this.errorListener = errorListener;
-
-        for (int i = 0; i < syntax.size(); i++) {
-            switch (syntax.get(i).type()) {
-                case ANSWER:
-                    this.optionCounter++;
-                    if (syntax.get(i).params().get("iscorrect").left() != "") {
-                        if (++this.correctAnswerCounter > 1) {
-                            this.addError("Uma questão não pode ter mais de uma alternativa correta.");
-                        }
-                    }
-
-                    break;
-                case END_QUESTION:
-                    if (this.optionCounter == 1) {
-                        this.addError("Uma questão deve ter mais de uma opção.");
-                    } else if (this.correctAnswerCounter == 0) {
-                        this.addError("Uma questão deve ter ao menos uma alternativa correta.");
-                    }
-                    this.correctAnswerCounter = 0;
-                    this.optionCounter = 0;
-                    break;
-                default:
-                    break;
+    public final void register(SemanticRule rule) {
+        var index = rules.size();
+
+        rules.add(rule);
+        ruleNanos = new long[rules.size()];
+
+        for (var type : rule.subscribedTypes()) {
+            var current = dispatch.get(type);
+            var extended = current == null ? new int[1] : Arrays.copyOf(current, current.length + 1);
+
+            extended[extended.length - 1] = index;
+            dispatch.put(type, extended);
+        }
+    }
+
+    /**
+     * Liga ou desliga a medição de tempo por regra
+     *
+     * @param timing V para medir o tempo de cada regra
+     */
+    public void setTiming(boolean timing) {
+        this.timing = timing;
+    }
+
+    /**
+     * Retorna o tempo acumulado (em nanossegundos) de cada regra desde o último reset
+     *
+     * @return Mapa: nome da regra -> tempo em nanossegundos
+     */
+    public Map<String, Long> getRuleTimings() {
+        Map<String, Long> timings = new LinkedHashMap<>();
+
+        for (int i = 0; i < rules.size(); i++) {
+            timings.put(rules.get(i).name(), ruleNanos[i]);
+        }
+
+        return timings;
+    }
+
+    /**
+     * Registra um erro semântico
+     *
+     * @param mensagem   Mensagem de erro
+     * @param line       Linha do programa (pode ser nula)
+     * @param lineNumber Número da linha
+     */
+    public void error(String mensagem, String line, int lineNumber) {
+        error(mensagem, line, lineNumber, origin);
+    }
+
+    /**
+     * Registra um erro semântico de um arquivo incluído
+     *
+     * @param mensagem   Mensagem de erro
+     * @param line       Linha do programa (pode ser nula)
+     * @param lineNumber Número da linha no arquivo de origem
+     * @param origin     Arquivo de origem (nulo: o próprio programa)
+     */
+    public void error(String mensagem, String line, int lineNumber, String origin) {
+        this.pendingErrors.add(new Error(withOrigin(mensagem, origin), line, lineNumber));
+    }
+
+    /**
+     * Registra um aviso semântico. Avisos não impedem a tradução.
+     *
+     * @param mensagem   Mensagem de aviso
+     * @param line       Linha do programa (pode ser nula)
+     * @param lineNumber Número da linha
+     */
+    public void warning(String mensagem, String line, int lineNumber) {
+        warning(mensagem, line, lineNumber, origin);
+    }
+
+    /**
+     * Registra um aviso semântico de um arquivo incluído
+     *
+     * @param mensagem   Mensagem de aviso
+     * @param line       Linha do programa (pode ser nula)
+     * @param lineNumber Número da linha no arquivo de origem
+     * @param origin     Arquivo de origem (nulo: o próprio programa)
+     */
+    public void warning(String mensagem, String line, int lineNumber, String origin) {
+        this.pendingWarnings.add(new Error(withOrigin(mensagem, origin), line, lineNumber));
+    }
+
+    /**
+     * Retorna o arquivo incluído de onde veio o token sendo analisado, ou nulo se ele veio do próprio programa.
+     * Uma regra que só reporta em finish() deve guardar a origem junto com a linha.
+     */
+    public String origin() {
+        return origin;
+    }
+
+    private static String withOrigin(String mensagem, String origin) {
+        return origin == null ? mensagem : mensagem + " (" + origin + ")";
+    }
+
+    /**
+     * Prepara o analisador para uma nova compilação
+     */
+    public void reset() {
+        for (var rule : rules) {
+            rule.reset();
+        }
+
+        ruleNanos = new long[rules.size()];
+        this.origin = null;
+        this.pendingErrors.clear();
+        this.pendingWarnings.clear();
+    }
+
+    /**
+     * Analisa um único token, no momento em que ele é emitido pelo analisador sintático.
+     * O token é entregue apenas às regras inscritas no seu tipo.
+     *
+     * @param token Token emitido
+     * @param line  Linha do programa que originou o token (pode ser nula)
+     */
+    public void analyse(TokenNode token, String line) {
+        analyse(token, line, null);
+    }
+
+    /**
+     * Analisa um único token de um arquivo incluído. Os erros reportados durante a análise do token
+     * levam o nome do arquivo.
+     *
+     * @param token  Token emitido, com o número da linha no arquivo de origem
+     * @param line   Linha do programa que originou o token (pode ser nula)
+     * @param origin Arquivo de origem (nulo: o próprio programa)
+     */
+    public void analyse(TokenNode token, String line, String origin) {
+        var interested = dispatch.get(token.type());
+
+        if (interested == null)
+            return;
+
+        this.origin = origin;
+
+        for (var index : interested) {
+            if (timing) {
+                var start = System.nanoTime();
+                rules.get(index).visit(token, line, this);
+                ruleNanos[index] += System.nanoTime() - start;
+            } else {
+                rules.get(index).visit(token, line, this);
             }
         }
+    }
+
+    /**
+     * Finaliza as regras e envia ao tratador de erros os erros e avisos acumulados desde o último reset
+     *
+     * @param errorListener Tratador de erros
+     * @return Quantidade de erros reportados (avisos não são contados)
+     */
+    public int flush(JsonErrorListener errorListener) {
+        this.origin = null;
+
+        for (int i = 0; i < rules.size(); i++) {
+            var start = timing ? System.nanoTime() : 0;
+            rules.get(i).finish(this);
+
+            if (timing)
+                ruleNanos[i] += System.nanoTime() - start;
+        }
 
-        return this.errorCounter;
+        for (var error : this.pendingErrors) {
+            errorListener.semanticError(error.getErrorMessage(), error.getLineContent(), error.getLineNumber());
+        }
+
+        for (var warning : this.pendingWarnings) {
+            errorListener.semanticWarning(warning.getErrorMessage(), warning.getLineContent(),
+                    warning.getLineNumber());
+        }
+
+        var errorCounter = this.pendingErrors.size();
+        this.pendingErrors.clear();
+        this.pendingWarnings.clear();
+
+        return errorCounter;
+    }
+
+    /**
+     * Analisa uma lista de tokens já pronta para verificar se a sua semântica está correta.
+     * A compilação normal não usa este método: o Parser chama {@link #analyse(TokenNode, String)}
+     * a cada token emitido.
+     *
+     * @param syntax        Lista de tokens
+     * @param errorListener Tratador de erros
+     * @return errorCounter
+     */
+    public int analyse(List<TokenNode> syntax, JsonErrorListener errorListener) {
+        this.reset();
+
+        for (var token : syntax) {
+            this.analyse(token, null);
+        }
 
+        return this.flush(errorListener);
     }
 }
@@ -0,0 +1,79 @@
+package com.learningcurve.compiler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
+import com.learningcurve.compiler.adapter.TextReader;
+
+/**
+ * Leitor que lê cada linha somente quando ela é pedida, sem guardar o texto na memória.
+ * As linhas são as mesmas do DefaultReader. Um erro de leitura é lançado como UncheckedIOException.
+ */
+public class StreamingReader implements TextReader, AutoCloseable {
+
+	private final BufferedReader reader;
+
+	// Número da última linha lida e indicação de fim do texto
+	private int lineNumber = 0;
+	private boolean eof = false;
+
+	/**
+	 * @param inputReader Entrada de dados no modo texto, fechada no fim do texto ou em close()
+	 */
+	public StreamingReader(Reader inputReader) {
+		this.reader = inputReader instanceof BufferedReader buffered ? buffered : new BufferedReader(inputReader);
+	}
+
+	/**
+	 * Retorna a próxima linha ou null, se o texto terminou
+	 */
+	@Override
+	public String readLine() {
+		if (eof)
+			return null;
+
+		try {
+			var line = reader.readLine();
+
+			if (line == null) {
+				eof = true;
+				reader.close();
+				return null;
+			}
+
+			lineNumber++;
+
+			// Remove os espaços no final da linha ou antes de um separador no fim dela, como no LineStore
+			var end = line.length();
+			while (end > 0 && LineStore.isWhitespace(line.charAt(end - 1)))
+				end--;
+
+			if (end == line.length() && end > 0 && LineStore.isLineSeparator(line.charAt(end - 1))) {
+				var trimmed = end - 1;
+				while (trimmed > 0 && LineStore.isWhitespace(line.charAt(trimmed - 1)))
+					trimmed--;
+
+				return trimmed == end - 1 ? line : line.substring(0, trimmed) + line.charAt(end - 1);
+			}
+
+			return end == line.length() ? line : line.substring(0, end);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Retorna a posição de leitura atual (1, 2, ...) ou zero, se ainda não foi feita nenhuma leitura
+	 */
+	@Override
+	public int currentLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+}
@@ -0,0 +1,213 @@
+package com.learningcurve.compiler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Realce de sintaxe dos blocos #code, feito uma única vez em tempo de compilação.
+ * Cada linguagem é uma tabela (palavras reservadas, comentários e aspas) usada por um
+ * pequeno analisador léxico. O HTML gerado fica em cache pelo conteúdo do bloco, então
+ * o mesmo trecho usado em várias lições é realçado só uma vez.
+ */
+public class SyntaxHighlighter {
+
+	/**
+	 * Tabela de uma linguagem
+	 *
+	 * @param keywords          Palavras reservadas
+	 * @param lineComment       Início de comentário de linha (ou nulo)
+	 * @param blockCommentStart Início de comentário de bloco (ou nulo)
+	 * @param blockCommentEnd   Fim de comentário de bloco (ou nulo)
+	 * @param quotes            Caracteres que delimitam strings
+	 * @param ignoreCase        Se as palavras reservadas não diferenciam maiúsculas
+	 */
+	public record Language(Set<String> keywords, String lineComment, String blockCommentStart,
+			String blockCommentEnd, String quotes, boolean ignoreCase) {
+	}
+
+	/**
+	 * Folha de estilo das classes usadas no realce
+	 */
+	public static final String STYLE = ".hl-kw{color:#0033b3;font-weight:bold}.hl-str{color:#067d17}"
+			+ ".hl-com{color:#8c8c8c;font-style:italic}.hl-num{color:#1750eb}";
+
+	// Limite de blocos no cache; ao passar do limite o cache é esvaziado
+	private static final int MAX_CACHE_ENTRIES = 4096;
+
+	private static final SyntaxHighlighter SHARED = new SyntaxHighlighter();
+
+	// Chave do cache: o hash é o do conteúdo do bloco; equals confirma o conteúdo
+	private record CacheKey(String language, boolean compact, String source) {
+	}
+
+	private final Map<String, Language> languages = new HashMap<>();
+
+	private final Map<CacheKey, String> cache = new ConcurrentHashMap<>();
+
+	public SyntaxHighlighter() {
+		var java = new Language(Set.of("abstract", "assert", "boolean", "break", "byte", "case", "catch", "char",
+				"class", "const", "continue", "default", "do", "double", "else", "enum", "extends", "final",
+				"finally", "float", "for", "if", "implements", "import", "instanceof", "int", "interface", "long",
+				"new", "package", "private", "protected", "public", "record", "return", "short", "static", "super",
+				"switch", "this", "throw", "throws", "try", "var", "void", "while", "true", "false", "null"),
+				"//", "/*", "*/", "\"'", false);
+		var c = new Language(Set.of("auto", "bool", "break", "case", "char", "class", "const", "continue",
+				"default", "delete", "do", "double", "else", "enum", "extern", "false", "float", "for", "if",
+				"include", "int", "long", "namespace", "new", "nullptr", "private", "protected", "public", "return",
+				"short", "signed", "sizeof", "static", "struct", "switch", "template", "this", "true", "typedef",
+				"union", "unsigned", "using", "void", "while", "NULL"),
+				"//", "/*", "*/", "\"'", false);
+		var javascript = new Language(Set.of("async", "await", "break", "case", "catch", "class", "const",
+				"continue", "default", "delete", "do", "else", "export", "extends", "false", "finally", "for",
+				"function", "if", "import", "in", "instanceof", "let", "new", "null", "of", "return", "super",
+				"switch", "this", "throw", "true", "try", "typeof", "undefined", "var", "void", "while", "yield"),
+				"//", "/*", "*/", "\"'`", false);
+		var python = new Language(Set.of("and", "as", "assert", "async", "await", "break", "class", "continue",
+				"def", "del", "elif", "else", "except", "False", "finally", "for", "from", "global", "if", "import",
+				"in", "is", "lambda", "None", "nonlocal", "not", "or", "pass", "raise", "return", "True", "try",
+				"while", "with", "yield"),
+				"#", null, null, "\"'", false);
+		var sql = new Language(Set.of("select", "from", "where", "insert", "into", "values", "update", "set",
+				"delete", "create", "table", "drop", "alter", "join", "inner", "left", "right", "outer", "on",
+				"group", "by", "order", "having", "and", "or", "not", "null", "as", "distinct", "primary", "key",
+				"foreign", "references", "is", "in", "like", "limit", "union", "all", "count", "sum", "avg", "max",
+				"min"),
+				"--", "/*", "*/", "'", true);
+
+		languages.put("java", java);
+		languages.put("c", c);
+		languages.put("cpp", c);
+		languages.put("c++", c);
+		languages.put("javascript", javascript);
+		languages.put("js", javascript);
+		languages.put("typescript", javascript);
+		languages.put("ts", javascript);
+		languages.put("python", python);
+		languages.put("py", python);
+		languages.put("sql", sql);
+	}
+
+	/**
+	 * Instância compartilhada por todos os tradutores, para que o cache valha para a compilação inteira
+	 *
+	 * @return Realçador compartilhado
+	 */
+	public static SyntaxHighlighter shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Indica se a linguagem tem tabela de realce
+	 *
+	 * @param language Nome da linguagem (tag do #code)
+	 * @return V se a linguagem é conhecida
+	 */
+	public boolean supports(String language) {
+		return language != null && languages.containsKey(language.toLowerCase());
+	}
+
+	/**
+	 * Realça um bloco de código inteiro
+	 *
+	 * @param language Nome da linguagem (tag do #code)
+	 * @param source   Linhas do bloco separadas por '\n'
+	 * @param compact  V para o modo &lt;pre&gt; (espaços e quebras preservados);
+	 *                 F para o modo &amp;nbsp; / &lt;br&gt; (toda linha termina com &lt;br&gt;)
+	 * @return HTML do bloco
+	 */
+	public String highlight(String language, String source, boolean compact) {
+		var key = new CacheKey(language.toLowerCase(), compact, source);
+		var html = cache.get(key);
+
+		if (html == null) {
+			if (cache.size() >= MAX_CACHE_ENTRIES)
+				cache.clear();
+
+			html = render(languages.get(key.language()), source, compact);
+			cache.put(key, html);
+		}
+
+		return html;
+	}
+
+	private String render(Language language, String source, boolean compact) {
+		var out = new StringBuilder(source.length() * 2);
+		var length = source.length();
+		var i = 0;
+
+		while (i < length) {
+			var c = source.charAt(i);
+			var start = i;
+
+			if (startsWith(source, i, language.lineComment())) {
+				i = source.indexOf('\n', i);
+				i = i < 0 ? length : i;
+				write(out, "hl-com", source, start, i, compact);
+			} else if (startsWith(source, i, language.blockCommentStart())) {
+				i = source.indexOf(language.blockCommentEnd(), i + language.blockCommentStart().length());
+				i = i < 0 ? length : i + language.blockCommentEnd().length();
+				write(out, "hl-com", source, start, i, compact);
+			} else if (language.quotes().indexOf(c) >= 0) {
+				i++;
+				while (i < length && source.charAt(i) != c && source.charAt(i) != '\n') {
+					i += source.charAt(i) == '\\' && i + 1 < length ? 2 : 1;
+				}
+				i = i < length && source.charAt(i) == c ? i + 1 : i;
+				write(out, "hl-str", source, start, i, compact);
+			} else if (Character.isDigit(c)) {
+				while (i < length && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '.'
+						|| source.charAt(i) == '_')) {
+					i++;
+				}
+				write(out, "hl-num", source, start, i, compact);
+			} else if (Character.isJavaIdentifierStart(c)) {
+				while (i < length && Character.isJavaIdentifierPart(source.charAt(i))) {
+					i++;
+				}
+				var word = source.substring(start, i);
+				var isKeyword = language.keywords().contains(language.ignoreCase() ? word.toLowerCase() : word);
+				write(out, isKeyword ? "hl-kw" : null, source, start, i, compact);
+			} else {
+				write(out, null, source, start, ++i, compact);
+			}
+		}
+
+		// No modo &nbsp; toda linha, inclusive a última, termina com <br>
+		if (!compact)
+			out.append("<br>\r\n");
+
+		return out.toString();
+	}
+
+	private static boolean startsWith(String source, int index, String prefix) {
+		return prefix != null && source.startsWith(prefix, index);
+	}
+
+	/**
+	 * Escreve o trecho [start, end), escapado e dentro de um span com a classe indicada (se houver)
+	 */
+	private static void write(StringBuilder out, String cssClass, String source, int start, int end,
+			boolean compact) {
+		if (cssClass != null)
+			out.append("<span class=\"").append(cssClass).append("\">");
+
+		if (compact) {
+			HtmlEscaper.escape(source, start, end, out);
+		} else {
+			// Cada quebra de linha vira <br>, como na renderização linha a linha
+			var lineStart = start;
+			for (var newLine = source.indexOf('\n', start); newLine >= 0 && newLine < end;
+					newLine = source.indexOf('\n', lineStart)) {
+				HtmlEscaper.escapeCode(source, lineStart, newLine, out);
+				out.append("<br>\r\n");
+				lineStart = newLine + 1;
+			}
+			HtmlEscaper.escapeCode(source, lineStart, end, out);
+		}
+
+		if (cssClass != null)
+			out.append("</span>");
+	}
+}
@@ -0,0 +1,161 @@
+package com.learningcurve.compiler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.learningcurve.compiler.adapter.ErrorListener;
+import com.learningcurve.compiler.adapter.Translator;
+
+/**
+ * Tradutor que gera somente o texto do documento, sem marcação, para a indexação da busca.
+ * Cada bloco vira uma linha; as células de uma tabela são separadas por TAB.
+ */
+public class TextTranslator implements Translator {
+
+	private BufferedWriter out;
+	private int errorCounter = 0;
+
+	// Texto do parágrafo atual, que pode ocupar várias linhas do programa
+	private final StringBuilder paragraph = new StringBuilder();
+
+	@Override
+	public int translate(List<TokenNode> syntax, PrintStream output, ErrorListener errorListener) {
+		this.errorCounter = 0;
+		this.paragraph.setLength(0);
+		this.out = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+		try {
+			for (var token : syntax) {
+				convert(token);
+			}
+
+			// Um parágrafo no fim do arquivo não recebe END_PARAGRAPH
+			endParagraph();
+			out.flush();
+		} catch (IOException e) {
+			errorListener.semanticError("Erro ao gerar o texto: " + e.getMessage());
+			errorCounter++;
+		}
+
+		return errorCounter;
+	}
+
+	private void convert(TokenNode token) throws IOException {
+		var params = token.params();
+
+		switch (token.type()) {
+			case HEADER1:
+			case HEADER2:
+			case HEADER3:
+				line(params.get("title").left());
+				break;
+
+			case CONCEPT:
+				line(params.get("concept").left());
+				break;
+
+			case LIST_ITEM:
+				line(params.get("item").left());
+				break;
+
+			case STEP:
+				line(params.get("step").left());
+				break;
+
+			case ANSWER:
+				line(params.get("option").left());
+				break;
+
+			case IMAGE:
+				var alt = params.get("alt");
+				// O lexer mantém as aspas do texto alternativo
+				if (alt != null && alt.left() != null)
+					line(alt.left().substring(1, alt.left().length() - 1));
+				break;
+
+			case SOURCE_CODE:
+				out.write(params.get("source").left());
+				out.newLine();
+				break;
+
+			case TABLE_ROW:
+				row(token);
+				break;
+
+			case TEXT:
+				var text = params.get("paragraph").left().trim();
+
+				// Como no HTML, uma barra no final da linha é quebra de linha
+				if (text.endsWith("\\"))
+					text = text.substring(0, text.length() - 1);
+
+				if (!paragraph.isEmpty())
+					paragraph.append(' ');
+
+				appendPlain(text, paragraph);
+				break;
+
+			case END_PARAGRAPH:
+				endParagraph();
+				break;
+
+			default:
+				break;
+		}
+	}
+
+	private void line(String text) throws IOException {
+		var plain = new StringBuilder();
+		appendPlain(text.trim(), plain);
+		out.append(plain);
+		out.newLine();
+	}
+
+	private void endParagraph() throws IOException {
+		if (!paragraph.isEmpty()) {
+			out.append(paragraph);
+			out.newLine();
+			paragraph.setLength(0);
+		}
+	}
+
+	private void row(TokenNode token) throws IOException {
+		var plain = new StringBuilder();
+
+		for (int index = 1; token.params().containsKey("cell" + index); index++) {
+			var value = token.params().get("cell" + index).left().trim();
+
+			// Marcadores de alinhamento do cabeçalho
+			if (!value.isEmpty() && (value.charAt(0) == '<' || value.charAt(0) == '=' || value.charAt(0) == '>'))
+				value = value.substring(1);
+
+			if (index > 1)
+				plain.append('\t');
+
+			appendPlain(value, plain);
+		}
+
+		out.append(plain);
+		out.newLine();
+	}
+
+	/**
+	 * Acrescenta o texto sem a marcação (negrito, links...)
+	 */
+	private static void appendPlain(String text, StringBuilder target) {
+		appendSpans(InlineMarkup.parse(text), target);
+	}
+
+	private static void appendSpans(List<InlineMarkup.Span> spans, StringBuilder target) {
+		for (var span : spans) {
+			if (span.text() != null)
+				target.append(span.text());
+			else if (span.children() != null)
+				appendSpans(span.children(), target);
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package com.learningcurve.compiler;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Cache binário (.lcmlc) da lista de tokens gerada pelo Parser.
+ * Permite traduzir o documento de novo (outro tema ou outro tradutor) sem ler e classificar o fonte.
+ *
+ * Formato:
+ * <pre>
+ * "LCMC" | versão (varint) | assinatura do TokenType (int) | checksum do fonte (long)
+ * quantidade de arquivos incluídos (varint) | para cada arquivo: caminho (tamanho + UTF-8) + checksum (long)
+ * quantidade de textos (varint) | para cada texto: tamanho (varint) + bytes UTF-8
+ * quantidade de tokens (varint) | para cada token:
+ *     tipo (varint) | diferença do número da linha para o token anterior (varint zigzag)
+ *     parâmetros + 1 (varint, 0 = sem parâmetros) | para cada parâmetro:
+ *         nome (índice do texto) | valor (índice do texto + 1, 0 = nulo) | posição (varint zigzag)
+ * </pre>
+ * Um cache de outra versão, gerado com outro TokenType, de outro fonte ou com um arquivo incluído
+ * que mudou é rejeitado.
+ */
+public final class TokenCache {
+
+	public static final String EXTENSION = ".lcmlc";
+
+	// Versão do formato; deve mudar sempre que o formato ou o significado dos tokens mudar
+	public static final int VERSION = 2;
+
+	private static final byte[] MAGIC = { 'L', 'C', 'M', 'C' };
+
+	// Assinatura dos tipos de token: muda se um tipo for incluído, removido ou mudar de posição
+	private static final int TOKEN_TYPES_SIGNATURE = String.join(",",
+			Arrays.stream(TokenType.values()).map(Enum::name).toList()).hashCode();
+
+	private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+	/**
+	 * Conteúdo de um cache válido
+	 *
+	 * @param tokens       Lista de tokens
+	 * @param dependencies Arquivos incluídos pelo fonte e o checksum de cada um, como em Parser.getDependencies
+	 */
+	public record Entry(List<TokenNode> tokens, Map<Path, Long> dependencies) {
+	}
+
+	private TokenCache() {
+	}
+
+	/**
+	 * Calcula o checksum do arquivo fonte, gravado no cache para rejeitar caches desatualizados
+	 *
+	 * @param source Arquivo fonte
+	 * @return CRC32 do conteúdo
+	 * @throws IOException Em caso de erro de leitura
+	 */
+	public static long checksum(Path source) throws IOException {
+		var crc = new CRC32();
+		crc.update(Files.readAllBytes(source));
+		return crc.getValue();
+	}
+
+	/**
+	 * Grava a lista de tokens no cache
+	 *
+	 * @param tokens         Tokens de uma compilação sem erros
+	 * @param sourceChecksum Checksum do arquivo fonte
+	 * @param dependencies   Arquivos incluídos pelo fonte e o checksum de cada um (Parser.getDependencies)
+	 * @param file           Arquivo do cache
+	 * @throws IOException Em caso de erro de gravação
+	 */
+	public static void write(List<TokenNode> tokens, long sourceChecksum, Map<Path, Long> dependencies, Path file)
+			throws IOException {
+		var strings = new HashMap<String, Integer>();
+		var stringTable = new ArrayList<String>();
+		var body = new BinaryEncoder();
+
+		body.writeVarint(tokens.size());
+
+		var previousLine = 0;
+
+		for (var token : tokens) {
+			body.writeVarint(token.type().ordinal());
+			body.writeZigzag(token.lineNumber() - previousLine);
+			previousLine = token.lineNumber();
+
+			if (token.params() == null) {
+				body.writeVarint(0);
+				continue;
+			}
+
+			body.writeVarint(token.params().size() + 1);
+
+			for (var param : token.params().entrySet()) {
+				body.writeVarint(intern(param.getKey(), strings, stringTable));
+
+				var value = param.getValue();
+				body.writeVarint(value.left() == null ? 0 : intern(value.left(), strings, stringTable) + 1);
+				body.writeZigzag(value.right() == null ? -1 : value.right());
+			}
+		}
+
+		var header = new BinaryEncoder();
+		header.write(MAGIC, 0, MAGIC.length);
+		header.writeVarint(VERSION);
+		header.writeInt(TOKEN_TYPES_SIGNATURE);
+		header.writeLong(sourceChecksum);
+		header.writeVarint(dependencies.size());
+
+		for (var dependency : dependencies.entrySet()) {
+			header.writeString(dependency.getKey().toString());
+			header.writeLong(dependency.getValue());
+		}
+
+		header.writeVarint(stringTable.size());
+
+		for (var text : stringTable) {
+			header.writeString(text);
+		}
+
+		body.writeTo(header);
+
+		// Grava num arquivo temporário e troca, para que um leitor nunca veja um cache pela metade
+		var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.write(temporary, header.toByteArray());
+
+		try {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+	}
+
+	/**
+	 * Lê a lista de tokens e os arquivos incluídos do cache
+	 *
+	 * @param file           Arquivo do cache
+	 * @param sourceChecksum Checksum atual do arquivo fonte
+	 * @return Conteúdo do cache ou nulo, se o cache não existir, for de outra versão, de outro fonte, tiver
+	 *         um arquivo incluído que mudou ou estiver corrompido
+	 * @throws IOException Em caso de erro de leitura
+	 */
+	public static Entry read(Path file, long sourceChecksum) throws IOException {
+		if (!Files.isRegularFile(file))
+			return null;
+
+		// O arquivo é lido para a memória, e não mapeado: um mapeamento aberto impediria regravar o cache no Windows
+		try {
+			return decode(ByteBuffer.wrap(Files.readAllBytes(file)), sourceChecksum);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+				| InvalidPathException e) {
+			// Arquivo truncado ou com índices ou caminhos inválidos
+			return null;
+		}
+	}
+
+	private static Entry decode(ByteBuffer buffer, long sourceChecksum) throws IOException {
+		for (var b : MAGIC) {
+			if (buffer.get() != b)
+				return null;
+		}
+
+		if (BinaryEncoder.readVarint(buffer) != VERSION || buffer.getInt() != TOKEN_TYPES_SIGNATURE
+				|| buffer.getLong() != sourceChecksum)
+			return null;
+
+		var dependencyCount = BinaryEncoder.readCount(buffer);
+		var dependencies = new LinkedHashMap<Path, Long>();
+
+		for (int i = 0; i < dependencyCount; i++) {
+			var dependency = Path.of(BinaryEncoder.readString(buffer));
+			var dependencyChecksum = buffer.getLong();
+
+			if (!Files.isRegularFile(dependency) || checksum(dependency) != dependencyChecksum)
+				return null;
+
+			dependencies.put(dependency, dependencyChecksum);
+		}
+
+		var strings = new String[BinaryEncoder.readCount(buffer)];
+
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = BinaryEncoder.readString(buffer);
+		}
+
+		var count = BinaryEncoder.readCount(buffer);
+		var tokens = new ArrayList<TokenNode>(count);
+		var lineNumber = 0;
+
+		for (int i = 0; i < count; i++) {
+			var type = TOKEN_TYPES[BinaryEncoder.readVarint(buffer)];
+			lineNumber += BinaryEncoder.readZigzag(buffer);
+
+			var paramCount = BinaryEncoder.readVarint(buffer);
+			Map<String, Pair<String, Integer>> params = null;
+
+			if (paramCount > 0) {
+				params = new HashMap<>();
+
+				for (int p = 1; p < paramCount; p++) {
+					var name = strings[BinaryEncoder.readVarint(buffer)];
+					var value = BinaryEncoder.readVarint(buffer);
+					var position = BinaryEncoder.readZigzag(buffer);
+
+					params.put(name, new Pair<>(value == 0 ? null : strings[value - 1], position));
+				}
+			}
+
+			tokens.add(new TokenNode(type, params, lineNumber));
+		}
+
+		return new Entry(tokens, Collections.unmodifiableMap(dependencies));
+	}
+
+	private static int intern(String text, Map<String, Integer> strings, List<String> stringTable) {
+		var index = strings.get(text);
+
+		if (index == null) {
+			index = stringTable.size();
+			strings.put(text, index);
+			stringTable.add(text);
+		}
+
+		return index;
+	}
+}
@@ -3,9 +3,15 @@ package com.learningcurve.compiler;
 import java.util.Map;
 
 /**
- * Registro que representa um comando e os seus parâmetros
+ * Registro que representa um comando, os seus parâmetros e a linha do programa que o originou
  */
-public record TokenNode(TokenType type, Map<String, Pair<String, Integer>> params) {
+public record TokenNode(TokenType type, Map<String, Pair<String, Integer>> params, int lineNumber) {
 
+	/**
+	 * Cria um token sem linha de origem conhecida
+	 */
+	public TokenNode(TokenType type, Map<String, Pair<String, Integer>> params) {
+		this(type, params, 0);
+	}
 }
  
\ No newline at end of file
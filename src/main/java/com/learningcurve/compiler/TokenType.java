@@ -28,6 +28,7 @@ public enum TokenType {
 	BEGIN_QUESTION,
 	END_QUESTION,
 	ANSWER,
+	INCLUDE,
 	TEXT,
 	BREAK,
 	BEGIN_PARAGRAPH,
@@ -6,5 +6,9 @@ public interface ErrorListener {
 
 	void semanticError(final String errorMsg);
 
+	void semanticError(final String errorMsg, final String line, final int lineNumber);
+
+	void semanticWarning(final String warningMsg, final String line, final int lineNumber);
+
 
 }
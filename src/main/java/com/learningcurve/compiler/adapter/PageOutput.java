@@ -0,0 +1,13 @@
+package com.learningcurve.compiler.adapter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface PageOutput {
+
+	/**
+	 * Open the output of one page of a document split into pages.
+	 * The translator closes the returned stream when the page is complete.
+	 */
+	OutputStream open(String fileName) throws IOException;
+}
@@ -0,0 +1,19 @@
+package com.learningcurve.compiler.adapter;
+
+public interface RandomAccessTextReader extends TextReader {
+
+	/**
+	 * Returns the number of lines
+	 */
+	int lineCount();
+
+	/**
+	 * Returns the line (1, 2, ..., lineCount()) as a view over the stored text, without copying it
+	 */
+	CharSequence line(int lineNumber);
+
+	/**
+	 * Moves the reading position so that the next readLine() returns the given line (1, 2, ..., lineCount() + 1)
+	 */
+	void seek(int lineNumber);
+}
@@ -0,0 +1,36 @@
+package com.learningcurve.compiler.adapter;
+
+import java.util.EnumSet;
+
+import com.learningcurve.compiler.SemanticAnalyser;
+import com.learningcurve.compiler.TokenNode;
+import com.learningcurve.compiler.TokenType;
+
+public interface SemanticRule {
+
+	/**
+	 * Name used in diagnostics and in the per-rule timing report
+	 */
+	String name();
+
+	/**
+	 * Token types this rule wants to receive. The analyser only dispatches these types to the rule.
+	 */
+	EnumSet<TokenType> subscribedTypes();
+
+	/**
+	 * Called once for each subscribed token, in document order
+	 */
+	void visit(TokenNode token, String line, SemanticAnalyser analyser);
+
+	/**
+	 * Called at the end of the document, for rules that only decide after seeing everything
+	 */
+	default void finish(SemanticAnalyser analyser) {
+	}
+
+	/**
+	 * Clears the rule state before a new compilation
+	 */
+	void reset();
+}
@@ -0,0 +1,32 @@
+package com.learningcurve.compiler.adapter;
+
+import java.io.PrintStream;
+
+import com.learningcurve.compiler.TokenNode;
+
+public interface StreamingTranslator extends Translator {
+
+	/**
+	 * Whether the translation can start before the analysis ends. The output of a streamed
+	 * translation is discarded if the analysis fails, so a translator that writes anywhere
+	 * else (for example, one file per page) must return false.
+	 */
+	default boolean canStream() {
+		return true;
+	}
+
+	/**
+	 * Starts a translation to the given output
+	 */
+	void begin(PrintStream output, ErrorListener errorListener);
+
+	/**
+	 * Translates the next token, in document order
+	 */
+	void accept(TokenNode token);
+
+	/**
+	 * Finishes the translation and returns the number of errors
+	 */
+	int end();
+}
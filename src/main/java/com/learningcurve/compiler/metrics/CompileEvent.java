@@ -0,0 +1,34 @@
+package com.learningcurve.compiler.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento do Java Flight Recorder para a compilação de um documento.
+ * Sem gravação em andamento, o evento não é instrumentado e não custa nada.
+ */
+@Name("com.learningcurve.Compile")
+@Label("Compilação LCML")
+@Description("Compilação de um documento, da leitura à tradução (ou somente a tradução, com tokens do cache)")
+@Category({ "Learning Curve", "Compilador" })
+@StackTrace(false)
+public final class CompileEvent extends jdk.jfr.Event {
+
+	@Label("Documento")
+	public String document;
+
+	@Label("Linhas")
+	public int lines;
+
+	@Label("Tokens")
+	public int tokens;
+
+	@Label("Erros")
+	public int errors;
+
+	@Label("Tokens do cache")
+	public boolean cached;
+}
@@ -0,0 +1,199 @@
+package com.learningcurve.compiler.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.learningcurve.compiler.TokenType;
+
+/**
+ * Métricas acumuladas de todas as compilações de um processo (por exemplo, um serviço de compilação).
+ * Os contadores são LongAdder, então várias threads podem registrar ao mesmo tempo sem disputa.
+ * Registrado com register(), fica visível via JMX como com.learningcurve:type=CompilerMetrics.
+ */
+public class CompilerMetrics implements CompilerMetricsMXBean {
+
+	public static final String OBJECT_NAME = "com.learningcurve:type=CompilerMetrics";
+
+	/**
+	 * Tipos de erro contados
+	 */
+	public enum ErrorKind {
+		SYNTAX, SEMANTIC, TRANSLATION
+	}
+
+	private final LongAdder documents = new LongAdder();
+	private final LongAdder lines = new LongAdder();
+	private final LongAdder bytesWritten = new LongAdder();
+
+	// Os mapas são preenchidos na construção e nunca mudam; somente os contadores são alterados
+	private final EnumMap<TokenType, LongAdder> tokens = new EnumMap<>(TokenType.class);
+	private final EnumMap<ErrorKind, LongAdder> errors = new EnumMap<>(ErrorKind.class);
+
+	private final LatencyHistogram lexLatency = new LatencyHistogram();
+	private final LatencyHistogram parseLatency = new LatencyHistogram();
+	private final LatencyHistogram semanticLatency = new LatencyHistogram();
+	private final LatencyHistogram translateLatency = new LatencyHistogram();
+
+	public CompilerMetrics() {
+		for (var type : TokenType.values()) {
+			tokens.put(type, new LongAdder());
+		}
+
+		for (var kind : ErrorKind.values()) {
+			errors.put(kind, new LongAdder());
+		}
+	}
+
+	/**
+	 * Registra as métricas no servidor JMX da plataforma
+	 *
+	 * @throws JMException Se já houver outro objeto registrado com o mesmo nome
+	 */
+	public void register() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+	}
+
+	/**
+	 * Registra uma linha classificada e analisada
+	 *
+	 * @param lexNanos   Tempo da classificação
+	 * @param parseNanos Tempo da análise sintática, sem a semântica
+	 */
+	public void recordLine(long lexNanos, long parseNanos) {
+		lines.increment();
+		lexLatency.record(lexNanos);
+		parseLatency.record(parseNanos);
+	}
+
+	public void recordSemantic(long nanos) {
+		semanticLatency.record(nanos);
+	}
+
+	/**
+	 * Conta um documento compilado, com ou sem erros
+	 */
+	public void recordDocument() {
+		documents.increment();
+	}
+
+	/**
+	 * Registra a tradução de um documento
+	 *
+	 * @param nanos Tempo da tradução
+	 */
+	public void recordTranslation(long nanos) {
+		translateLatency.record(nanos);
+	}
+
+	/**
+	 * Conta um token emitido pela análise de um documento
+	 */
+	public void recordToken(TokenType type) {
+		tokens.get(type).increment();
+	}
+
+	public void recordErrors(ErrorKind kind, int count) {
+		if (count > 0)
+			errors.get(kind).add(count);
+	}
+
+	/**
+	 * Envolve um fluxo de saída para contar os bytes escritos
+	 *
+	 * @param output Fluxo de saída
+	 * @return Fluxo que conta os bytes e repassa para o original
+	 */
+	public OutputStream countBytes(OutputStream output) {
+		return new FilterOutputStream(output) {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				bytesWritten.increment();
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				bytesWritten.add(len);
+			}
+		};
+	}
+
+	@Override
+	public long getDocumentsCompiled() {
+		return documents.sum();
+	}
+
+	@Override
+	public long getLinesLexed() {
+		return lines.sum();
+	}
+
+	@Override
+	public long getBytesWritten() {
+		return bytesWritten.sum();
+	}
+
+	@Override
+	public Map<String, Long> getTokensByType() {
+		var result = new TreeMap<String, Long>();
+
+		tokens.forEach((type, count) -> {
+			var sum = count.sum();
+
+			if (sum > 0)
+				result.put(type.name(), sum);
+		});
+
+		return result;
+	}
+
+	@Override
+	public Map<String, Long> getErrorsByKind() {
+		var result = new TreeMap<String, Long>();
+		errors.forEach((kind, count) -> result.put(kind.name(), count.sum()));
+		return result;
+	}
+
+	@Override
+	public LatencySummary getLexLatency() {
+		return lexLatency.summary();
+	}
+
+	@Override
+	public LatencySummary getParseLatency() {
+		return parseLatency.summary();
+	}
+
+	@Override
+	public LatencySummary getSemanticLatency() {
+		return semanticLatency.summary();
+	}
+
+	@Override
+	public LatencySummary getTranslateLatency() {
+		return translateLatency.summary();
+	}
+
+	@Override
+	public void reset() {
+		documents.reset();
+		lines.reset();
+		bytesWritten.reset();
+		tokens.values().forEach(LongAdder::reset);
+		errors.values().forEach(LongAdder::reset);
+		lexLatency.reset();
+		parseLatency.reset();
+		semanticLatency.reset();
+		translateLatency.reset();
+	}
+}
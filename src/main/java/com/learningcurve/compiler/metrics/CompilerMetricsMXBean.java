@@ -0,0 +1,53 @@
+package com.learningcurve.compiler.metrics;
+
+import java.util.Map;
+
+/**
+ * Métricas do compilador expostas via JMX (por exemplo, no JConsole ou VisualVM)
+ */
+public interface CompilerMetricsMXBean {
+
+	/**
+	 * Documentos compilados, inclusive os que tiveram erros e os traduzidos do cache
+	 */
+	long getDocumentsCompiled();
+
+	long getLinesLexed();
+
+	long getBytesWritten();
+
+	/**
+	 * Tokens gerados, por tipo
+	 */
+	Map<String, Long> getTokensByType();
+
+	/**
+	 * Erros, por tipo: SYNTAX, SEMANTIC e TRANSLATION
+	 */
+	Map<String, Long> getErrorsByKind();
+
+	/**
+	 * Latência da classificação de cada linha (Lexer.classify)
+	 */
+	LatencySummary getLexLatency();
+
+	/**
+	 * Latência da análise sintática de cada linha, sem a análise semântica
+	 */
+	LatencySummary getParseLatency();
+
+	/**
+	 * Latência da análise semântica de cada token (SemanticAnalyser.analyse)
+	 */
+	LatencySummary getSemanticLatency();
+
+	/**
+	 * Latência da tradução de cada documento (Translator.translate)
+	 */
+	LatencySummary getTranslateLatency();
+
+	/**
+	 * Zera todas as métricas
+	 */
+	void reset();
+}
@@ -0,0 +1,92 @@
+package com.learningcurve.compiler.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências sem bloqueio, com faixas em potências de 2 nanossegundos.
+ * A faixa i conta as amostras em [2^(i-1), 2^i) ns; os percentis são aproximados pelo limite superior da faixa.
+ */
+public class LatencyHistogram {
+
+	// 2^40 ns ~ 18 minutos; amostras maiores caem na última faixa
+	private static final int BUCKETS = 41;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+	private final LongAdder totalNanos = new LongAdder();
+
+	private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+	public LatencyHistogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Registra uma amostra
+	 *
+	 * @param nanos Duração em nanossegundos
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+
+		buckets[Math.min(64 - Long.numberOfLeadingZeros(nanos), BUCKETS - 1)].increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	/**
+	 * Resumo do histograma. As faixas são lidas uma a uma, sem parar os registros,
+	 * então o resumo de um histograma em uso é aproximado.
+	 *
+	 * @return Quantidade, média, percentis e máximo
+	 */
+	public LatencySummary summary() {
+		var counts = new long[BUCKETS];
+		long total = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+			total += counts[i];
+		}
+
+		var mean = total == 0 ? 0 : totalNanos.sum() / 1e3 / total;
+		var max = maxNanos.get() / 1e3;
+
+		// O limite da faixa pode passar do máximo observado
+		return new LatencySummary(total, totalNanos.sum() / 1e6, mean, Math.min(percentile(counts, total, 0.5), max),
+				Math.min(percentile(counts, total, 0.9), max), Math.min(percentile(counts, total, 0.99), max), max);
+	}
+
+	/**
+	 * Limite superior, em microssegundos, da faixa que contém o percentil
+	 */
+	private static double percentile(long[] counts, long total, double fraction) {
+		if (total == 0)
+			return 0;
+
+		var target = (long) Math.ceil(total * fraction);
+		long seen = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+
+			if (seen >= target)
+				return (1L << i) / 1e3;
+		}
+
+		return (1L << (counts.length - 1)) / 1e3;
+	}
+
+	public void reset() {
+		for (var bucket : buckets) {
+			bucket.reset();
+		}
+
+		totalNanos.reset();
+		maxNanos.reset();
+	}
+}
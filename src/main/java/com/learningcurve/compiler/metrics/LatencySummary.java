@@ -0,0 +1,65 @@
+package com.learningcurve.compiler.metrics;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * Resumo de um histograma de latências, exposto via JMX como CompositeData.
+ * Os percentis são o limite superior da faixa do histograma que os contém.
+ */
+public class LatencySummary {
+
+	private final long count;
+	private final double totalMillis;
+	private final double meanMicros;
+	private final double p50Micros;
+	private final double p90Micros;
+	private final double p99Micros;
+	private final double maxMicros;
+
+	@ConstructorParameters({ "count", "totalMillis", "meanMicros", "p50Micros", "p90Micros", "p99Micros",
+			"maxMicros" })
+	public LatencySummary(long count, double totalMillis, double meanMicros, double p50Micros, double p90Micros,
+						  double p99Micros, double maxMicros) {
+		this.count = count;
+		this.totalMillis = totalMillis;
+		this.meanMicros = meanMicros;
+		this.p50Micros = p50Micros;
+		this.p90Micros = p90Micros;
+		this.p99Micros = p99Micros;
+		this.maxMicros = maxMicros;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getTotalMillis() {
+		return totalMillis;
+	}
+
+	public double getMeanMicros() {
+		return meanMicros;
+	}
+
+	public double getP50Micros() {
+		return p50Micros;
+	}
+
+	public double getP90Micros() {
+		return p90Micros;
+	}
+
+	public double getP99Micros() {
+		return p99Micros;
+	}
+
+	public double getMaxMicros() {
+		return maxMicros;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d amostras, média %.1f µs, p50 %.1f µs, p99 %.1f µs, máx. %.1f µs", count, meanMicros,
+				p50Micros, p99Micros, maxMicros);
+	}
+}
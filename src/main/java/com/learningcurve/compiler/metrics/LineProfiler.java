@@ -0,0 +1,258 @@
+package com.learningcurve.compiler.metrics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+import com.learningcurve.compiler.Context;
+import com.learningcurve.compiler.HtmlEscaper;
+import com.learningcurve.compiler.TokenType;
+
+/**
+ * Perfil de um documento linha a linha: tempo e memória alocada na análise (léxica e sintática)
+ * e na tradução de cada linha do programa. O relatório lista as linhas e os blocos (parágrafos,
+ * tabelas, listas...) mais lentos, para encontrar as linhas que custam muito mais que a média.
+ * A alocação é medida pela thread atual, com com.sun.management.ThreadMXBean, se disponível.
+ */
+public class LineProfiler {
+
+	// Quantidade de linhas e de blocos no relatório HTML; o CSV tem todos
+	private static final int TOP_LINES = 50;
+	private static final int TOP_BLOCKS = 20;
+
+	// Tamanho máximo do texto da linha no relatório
+	private static final int MAX_TEXT = 120;
+
+	private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+	/**
+	 * Medidas de uma linha do programa
+	 */
+	private static final class Line {
+		final int number;
+		String text = "";
+		TokenType type;
+		Context context = Context.DEFAULT;
+		long lexNanos;
+		long parseNanos;
+		long translateNanos;
+		long bytes;
+
+		Line(int number) {
+			this.number = number;
+		}
+
+		long totalNanos() {
+			return lexNanos + parseNanos + translateNanos;
+		}
+	}
+
+	/**
+	 * Bloco: a linha que abre um contexto e as linhas dentro dele
+	 */
+	private record Block(Line first, Line last, Context context, long totalNanos, long bytes) {
+	}
+
+	private final TreeMap<Integer, Line> lines = new TreeMap<>();
+
+	/**
+	 * Memória alocada pela thread atual até agora
+	 *
+	 * @return Bytes alocados ou zero, se a JVM não mede a alocação por thread
+	 */
+	public static long allocatedBytes() {
+		return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+	}
+
+	private static com.sun.management.ThreadMXBean allocationBean() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+				&& bean.isThreadAllocatedMemorySupported()) {
+			bean.setThreadAllocatedMemoryEnabled(true);
+			return bean;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Registra a análise de uma linha
+	 *
+	 * @param lineNumber Número da linha
+	 * @param text       Texto da linha
+	 * @param type       Tipo atribuído pelo analisador léxico
+	 * @param context    Contexto em que a linha foi classificada
+	 * @param lexNanos   Tempo da classificação
+	 * @param parseNanos Tempo da análise sintática e semântica
+	 * @param bytes      Memória alocada
+	 */
+	public void recordAnalysis(int lineNumber, String text, TokenType type, Context context, long lexNanos,
+							   long parseNanos, long bytes) {
+		var line = line(lineNumber);
+
+		line.text = text == null ? "" : text;
+		line.type = type;
+		line.context = context;
+		line.lexNanos += lexNanos;
+		line.parseNanos += parseNanos;
+		line.bytes += bytes;
+	}
+
+	/**
+	 * Registra a tradução de um token. Os tokens de uma mesma linha são somados.
+	 *
+	 * @param lineNumber Número da linha que originou o token
+	 * @param type       Tipo do token
+	 * @param nanos      Tempo da tradução
+	 * @param bytes      Memória alocada
+	 */
+	public void recordTranslation(int lineNumber, TokenType type, long nanos, long bytes) {
+		var line = line(lineNumber);
+
+		if (line.type == null)
+			line.type = type;
+
+		line.translateNanos += nanos;
+		line.bytes += bytes;
+	}
+
+	private Line line(int lineNumber) {
+		return lines.computeIfAbsent(lineNumber, Line::new);
+	}
+
+	public void reset() {
+		lines.clear();
+	}
+
+	/**
+	 * Grava o relatório: CSV se o arquivo terminar em .csv; HTML, caso contrário
+	 *
+	 * @param file Arquivo do relatório
+	 * @throws IOException Em caso de erro de gravação
+	 */
+	public void write(Path file) throws IOException {
+		try (var out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+			if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv"))
+				writeCsv(out);
+			else
+				writeHtml(out);
+		}
+	}
+
+	/**
+	 * Blocos com mais de uma linha. Uma linha classificada no contexto DEFAULT abre um bloco candidato,
+	 * que recebe as linhas seguintes classificadas em outro contexto.
+	 */
+	private List<Block> blocks() {
+		var blocks = new ArrayList<Block>();
+		Line first = null;
+		Line last = null;
+		Context context = null;
+		long nanos = 0;
+		long bytes = 0;
+
+		for (var line : lines.values()) {
+			if (line.context == Context.DEFAULT || first == null) {
+				if (first != last)
+					blocks.add(new Block(first, last, context, nanos, bytes));
+
+				first = line;
+				last = line;
+				context = null;
+				nanos = line.totalNanos();
+				bytes = line.bytes;
+				continue;
+			}
+
+			if (context == null)
+				context = line.context;
+
+			last = line;
+			nanos += line.totalNanos();
+			bytes += line.bytes;
+		}
+
+		if (first != last)
+			blocks.add(new Block(first, last, context, nanos, bytes));
+
+		blocks.sort(Comparator.comparingLong(Block::totalNanos).reversed());
+		return blocks;
+	}
+
+	private List<Line> slowestLines() {
+		var sorted = new ArrayList<>(lines.values());
+		sorted.sort(Comparator.comparingLong(Line::totalNanos).reversed());
+		return sorted;
+	}
+
+	private void writeCsv(PrintStream out) {
+		out.print("kind,line,end_line,token_type,context,lex_us,parse_us,translate_us,total_us,allocated_bytes,text\n");
+
+		for (var line : slowestLines()) {
+			out.printf(Locale.ROOT, "LINE,%d,%d,%s,%s,%.1f,%.1f,%.1f,%.1f,%d,%s\n", line.number, line.number,
+					line.type, line.context, line.lexNanos / 1e3, line.parseNanos / 1e3, line.translateNanos / 1e3,
+					line.totalNanos() / 1e3, line.bytes, csv(line.text));
+		}
+
+		for (var block : blocks()) {
+			out.printf(Locale.ROOT, "BLOCK,%d,%d,%s,%s,,,,%.1f,%d,%s\n", block.first().number, block.last().number,
+					block.first().type, block.context(), block.totalNanos() / 1e3, block.bytes(),
+					csv(block.first().text));
+		}
+	}
+
+	private void writeHtml(PrintStream out) {
+		var total = lines.values().stream().mapToLong(Line::totalNanos).sum();
+		var average = lines.isEmpty() ? 0 : (double) total / lines.size();
+
+		out.print("<!DOCTYPE html>\r\n<html>\r\n<head>\r\n<meta charset=\"utf-8\">\r\n<title>Perfil</title>\r\n");
+		out.print("<style>table{border-collapse:collapse}td,th{border:1px solid #ccc;padding:2px 6px}"
+				+ "td.n{text-align:right}code{white-space:pre}</style>\r\n</head>\r\n<body>\r\n");
+		out.printf(Locale.ROOT, "<p>%d linhas, %.2f ms no total, média de %.1f µs por linha.</p>\r\n", lines.size(),
+				total / 1e6, average / 1e3);
+
+		out.print("<h2>Linhas mais lentas</h2>\r\n<table>\r\n<tr><th>Linha</th><th>Token</th><th>Contexto</th>"
+				+ "<th>Léxico (µs)</th><th>Sintático (µs)</th><th>Tradução (µs)</th><th>Total (µs)</th>"
+				+ "<th>x média</th><th>Alocado (bytes)</th><th>Texto</th></tr>\r\n");
+
+		for (var line : slowestLines().stream().limit(TOP_LINES).toList()) {
+			out.printf(Locale.ROOT, "<tr><td class=\"n\">%d</td><td>%s</td><td>%s</td><td class=\"n\">%.1f</td>"
+							+ "<td class=\"n\">%.1f</td><td class=\"n\">%.1f</td><td class=\"n\">%.1f</td>"
+							+ "<td class=\"n\">%.1f</td><td class=\"n\">%d</td><td><code>%s</code></td></tr>\r\n",
+					line.number, line.type, line.context, line.lexNanos / 1e3, line.parseNanos / 1e3,
+					line.translateNanos / 1e3, line.totalNanos() / 1e3,
+					average == 0 ? 0 : line.totalNanos() / average, line.bytes, html(line.text));
+		}
+
+		out.print("</table>\r\n<h2>Blocos mais lentos</h2>\r\n<table>\r\n<tr><th>Linhas</th><th>Token</th>"
+				+ "<th>Contexto</th><th>Total (µs)</th><th>Alocado (bytes)</th><th>Primeira linha</th></tr>\r\n");
+
+		for (var block : blocks().stream().limit(TOP_BLOCKS).toList()) {
+			out.printf(Locale.ROOT, "<tr><td class=\"n\">%d-%d</td><td>%s</td><td>%s</td><td class=\"n\">%.1f</td>"
+							+ "<td class=\"n\">%d</td><td><code>%s</code></td></tr>\r\n",
+					block.first().number, block.last().number, block.first().type, block.context(),
+					block.totalNanos() / 1e3, block.bytes(), html(block.first().text));
+		}
+
+		out.print("</table>\r\n</body>\r\n</html>");
+	}
+
+	private static String truncate(String text) {
+		return text.length() > MAX_TEXT ? text.substring(0, MAX_TEXT) + "..." : text;
+	}
+
+	private static String csv(String text) {
+		return "\"" + truncate(text).replace("\"", "\"\"") + "\"";
+	}
+
+	private static String html(String text) {
+		return HtmlEscaper.escape(truncate(text));
+	}
+}
@@ -0,0 +1,34 @@
+package com.learningcurve.compiler.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento do Java Flight Recorder para uma fase da compilação: ANALYSIS (léxica e sintática, linha a linha),
+ * SEMANTIC (regras reportadas no final) ou TRANSLATION
+ */
+@Name("com.learningcurve.Phase")
+@Label("Fase da compilação LCML")
+@Category({ "Learning Curve", "Compilador" })
+@StackTrace(false)
+public final class PhaseEvent extends jdk.jfr.Event {
+
+	public static final String ANALYSIS = "ANALYSIS";
+	public static final String SEMANTIC = "SEMANTIC";
+	public static final String TRANSLATION = "TRANSLATION";
+
+	@Label("Documento")
+	public String document;
+
+	@Label("Fase")
+	public String phase;
+
+	@Label("Tempo léxico")
+	@Description("Na fase ANALYSIS, parte do tempo gasta em Lexer.classify")
+	@Timespan(Timespan.NANOSECONDS)
+	public long lexTime;
+}
@@ -0,0 +1,36 @@
+package com.learningcurve.compiler.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento do Java Flight Recorder para uma linha lenta: a classificação (Lexer.classify) ou a conversão
+ * da marcação inline (convertMarkingText) que passou do limite.
+ * O limite padrão é 1 ms e pode ser alterado na configuração da gravação, por exemplo:
+ * -XX:StartFlightRecording:"+com.learningcurve.SlowLine#threshold=200 us"
+ */
+@Name("com.learningcurve.SlowLine")
+@Label("Linha LCML lenta")
+@Description("Linha cuja classificação ou conversão da marcação passou do limite")
+@Category({ "Learning Curve", "Compilador" })
+@Threshold("1 ms")
+public final class SlowLineEvent extends jdk.jfr.Event {
+
+	public static final String LEXER = "LEXER";
+	public static final String MARKUP = "MARKUP";
+
+	@Label("Fase")
+	public String phase;
+
+	@Label("Linha")
+	public int lineNumber;
+
+	@Label("Tipo do token")
+	public String tokenType;
+
+	@Label("Texto")
+	public String text;
+}
@@ -0,0 +1,46 @@
+package com.learningcurve.compiler.rules;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.learningcurve.compiler.SemanticAnalyser;
+import com.learningcurve.compiler.TokenNode;
+import com.learningcurve.compiler.TokenType;
+import com.learningcurve.compiler.adapter.SemanticRule;
+
+/**
+ * Avisa quando um cabeçalho do mesmo nível e com o mesmo título aparece mais de uma vez
+ */
+public class DuplicateHeaderRule implements SemanticRule {
+
+    // Chave: nível + título normalizado; Valor: linha da primeira ocorrência
+    private final Map<String, Integer> headers = new HashMap<>();
+
+    @Override
+    public String name() {
+        return "duplicate-header";
+    }
+
+    @Override
+    public EnumSet<TokenType> subscribedTypes() {
+        return EnumSet.of(TokenType.HEADER1, TokenType.HEADER2, TokenType.HEADER3);
+    }
+
+    @Override
+    public void visit(TokenNode token, String line, SemanticAnalyser analyser) {
+        var title = token.params().get("title").left().trim();
+        var key = token.type().name() + ':' + title.toLowerCase();
+        var first = headers.putIfAbsent(key, token.lineNumber());
+
+        if (first != null) {
+            analyser.warning(String.format("Cabeçalho repetido: \"%s\" (primeira ocorrência na linha %d).", title,
+                    first), line, token.lineNumber());
+        }
+    }
+
+    @Override
+    public void reset() {
+        headers.clear();
+    }
+}
@@ -0,0 +1,53 @@
+package com.learningcurve.compiler.rules;
+
+import java.util.EnumSet;
+
+import com.learningcurve.compiler.SemanticAnalyser;
+import com.learningcurve.compiler.TokenNode;
+import com.learningcurve.compiler.TokenType;
+import com.learningcurve.compiler.adapter.SemanticRule;
+
+/**
+ * Avisa quando uma tabela não tem nenhuma linha
+ */
+public class EmptyTableRule implements SemanticRule {
+    private int rowCounter = 0;
+    private int tableLine = 0;
+
+    @Override
+    public String name() {
+        return "empty-table";
+    }
+
+    @Override
+    public EnumSet<TokenType> subscribedTypes() {
+        return EnumSet.of(TokenType.BEGIN_TABLE, TokenType.TABLE_ROW, TokenType.END_TABLE);
+    }
+
+    @Override
+    public void visit(TokenNode token, String line, SemanticAnalyser analyser) {
+        switch (token.type()) {
+            case BEGIN_TABLE:
+                this.rowCounter = 0;
+                this.tableLine = token.lineNumber();
+                break;
+            case TABLE_ROW:
+                this.rowCounter++;
+                break;
+            case END_TABLE:
+                if (this.rowCounter == 0) {
+                    analyser.warning(String.format("A tabela iniciada na linha %d está vazia.", this.tableLine),
+                            line, token.lineNumber());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void reset() {
+        this.rowCounter = 0;
+        this.tableLine = 0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.learningcurve.compiler.rules;
+
+import java.util.EnumSet;
+
+import com.learningcurve.compiler.SemanticAnalyser;
+import com.learningcurve.compiler.TokenNode;
+import com.learningcurve.compiler.TokenType;
+import com.learningcurve.compiler.adapter.SemanticRule;
+
+/**
+ * Avisa quando a largura ou a altura de uma imagem ou vídeo é zero ou grande demais
+ */
+public class MediaDimensionRule implements SemanticRule {
+
+    // Maior dimensão (em pixels) considerada razoável
+    public static final int MAX_DIMENSION = 10000;
+
+    @Override
+    public String name() {
+        return "media-dimension";
+    }
+
+    @Override
+    public EnumSet<TokenType> subscribedTypes() {
+        return EnumSet.of(TokenType.IMAGE, TokenType.VIDEO);
+    }
+
+    @Override
+    public void visit(TokenNode token, String line, SemanticAnalyser analyser) {
+        check("largura", token.params().get("width").left(), token, line, analyser);
+        check("altura", token.params().get("height").left(), token, line, analyser);
+    }
+
+    private void check(String dimension, String value, TokenNode token, String line, SemanticAnalyser analyser) {
+        if (value == null)
+            return;
+
+        // O lexer só aceita dígitos, mas o número pode não caber num int
+        var pixels = value.length() > 9 ? Long.MAX_VALUE : Long.parseLong(value);
+
+        if (pixels == 0) {
+            analyser.warning(String.format("A %s da mídia é zero.", dimension), line, token.lineNumber());
+        } else if (pixels > MAX_DIMENSION) {
+            analyser.warning(String.format("A %s da mídia (%s px) é maior que %d px.", dimension, value,
+                    MAX_DIMENSION), line, token.lineNumber());
+        }
+    }
+
+    @Override
+    public void reset() {
+    }
+}
@@ -0,0 +1,60 @@
+package com.learningcurve.compiler.rules;
+
+import java.util.EnumSet;
+
+import com.learningcurve.compiler.SemanticAnalyser;
+import com.learningcurve.compiler.TokenNode;
+import com.learningcurve.compiler.TokenType;
+import com.learningcurve.compiler.adapter.SemanticRule;
+
+/**
+ * Uma questão deve ter mais de uma opção e exatamente uma alternativa correta
+ */
+public class QuestionAnswersRule implements SemanticRule {
+    private int correctAnswerCounter = 0;
+    private int optionCounter = 0;
+
+    @Override
+    public String name() {
+        return "question-answers";
+    }
+
+    @Override
+    public EnumSet<TokenType> subscribedTypes() {
+        return EnumSet.of(TokenType.ANSWER, TokenType.END_QUESTION);
+    }
+
+    @Override
+    public void visit(TokenNode token, String line, SemanticAnalyser analyser) {
+        switch (token.type()) {
+            case ANSWER:
+                this.optionCounter++;
+                if (!token.params().get("iscorrect").left().isEmpty()) {
+                    if (++this.correctAnswerCounter > 1) {
+                        analyser.error("Uma questão não pode ter mais de uma alternativa correta.", line,
+                                token.lineNumber());
+                    }
+                }
+
+                break;
+            case END_QUESTION:
+                if (this.optionCounter == 1) {
+                    analyser.error("Uma questão deve ter mais de uma opção.", line, token.lineNumber());
+                } else if (this.correctAnswerCounter == 0) {
+                    analyser.error("Uma questão deve ter ao menos uma alternativa correta.", line,
+                            token.lineNumber());
+                }
+                this.correctAnswerCounter = 0;
+                this.optionCounter = 0;
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void reset() {
+        this.correctAnswerCounter = 0;
+        this.optionCounter = 0;
+    }
+}
@@ -0,0 +1,54 @@
+package com.learningcurve.compiler.rules;
+
+import java.util.EnumSet;
+
+import com.learningcurve.compiler.SemanticAnalyser;
+import com.learningcurve.compiler.TokenNode;
+import com.learningcurve.compiler.TokenType;
+import com.learningcurve.compiler.adapter.SemanticRule;
+
+/**
+ * Compara a quantidade de células de cada linha com a do cabeçalho da tabela.
+ * Mais células que o cabeçalho é erro (não há alinhamento definido para elas);
+ * menos células é apenas um aviso.
+ */
+public class TableColumnCountRule implements SemanticRule {
+
+    // Quantidade de colunas do cabeçalho ou zero, se a tabela ainda não teve nenhuma linha
+    private int headerColumns = 0;
+
+    @Override
+    public String name() {
+        return "table-column-count";
+    }
+
+    @Override
+    public EnumSet<TokenType> subscribedTypes() {
+        return EnumSet.of(TokenType.BEGIN_TABLE, TokenType.TABLE_ROW);
+    }
+
+    @Override
+    public void visit(TokenNode token, String line, SemanticAnalyser analyser) {
+        if (token.type() == TokenType.BEGIN_TABLE) {
+            this.headerColumns = 0;
+            return;
+        }
+
+        var columns = token.params().size();
+
+        if (this.headerColumns == 0) {
+            this.headerColumns = columns;
+        } else if (columns > this.headerColumns) {
+            analyser.error(String.format("A linha da tabela tem %d células, mas o cabeçalho tem %d.", columns,
+                    this.headerColumns), line, token.lineNumber());
+        } else if (columns < this.headerColumns) {
+            analyser.warning(String.format("A linha da tabela tem %d células, mas o cabeçalho tem %d.", columns,
+                    this.headerColumns), line, token.lineNumber());
+        }
+    }
+
+    @Override
+    public void reset() {
+        this.headerColumns = 0;
+    }
+}
@@ -0,0 +1,76 @@
+package com.learningcurve.compiler.rules;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import com.learningcurve.compiler.SemanticAnalyser;
+import com.learningcurve.compiler.TokenNode;
+import com.learningcurve.compiler.TokenType;
+import com.learningcurve.compiler.adapter.SemanticRule;
+
+/**
+ * Avisa quando um conceito não é citado em nenhum texto depois da sua definição.
+ * O termo do conceito é o texto antes do primeiro ':' ou o conceito inteiro.
+ */
+public class UnusedConceptRule implements SemanticRule {
+
+    private record Concept(String term, String line, int lineNumber, String origin) {
+    }
+
+    // Conceitos ainda não citados
+    private final List<Concept> unused = new ArrayList<>();
+
+    @Override
+    public String name() {
+        return "unused-concept";
+    }
+
+    @Override
+    public EnumSet<TokenType> subscribedTypes() {
+        return EnumSet.of(TokenType.CONCEPT, TokenType.HEADER1, TokenType.HEADER2, TokenType.HEADER3,
+                TokenType.TEXT, TokenType.LIST_ITEM, TokenType.STEP, TokenType.ANSWER, TokenType.TABLE_ROW);
+    }
+
+    @Override
+    public void visit(TokenNode token, String line, SemanticAnalyser analyser) {
+        if (token.type() == TokenType.CONCEPT) {
+            var term = token.params().get("concept").left();
+            var colon = term.indexOf(':');
+
+            term = (colon > 0 ? term.substring(0, colon) : term).replaceAll("[*_~^+]", "").trim().toLowerCase();
+
+            if (!term.isEmpty())
+                unused.add(new Concept(term, line, token.lineNumber(), analyser.origin()));
+
+            return;
+        }
+
+        if (unused.isEmpty())
+            return;
+
+        for (var param : token.params().entrySet()) {
+            var text = param.getValue().left();
+
+            if (text != null && !param.getKey().equals("iscorrect")) {
+                var lower = text.toLowerCase();
+                unused.removeIf(concept -> lower.contains(concept.term()));
+            }
+        }
+    }
+
+    @Override
+    public void finish(SemanticAnalyser analyser) {
+        for (var concept : unused) {
+            analyser.warning(String.format("O conceito \"%s\" não é citado no restante do documento.",
+                    concept.term()), concept.line(), concept.lineNumber(), concept.origin());
+        }
+
+        unused.clear();
+    }
+
+    @Override
+    public void reset() {
+        unused.clear();
+    }
+}
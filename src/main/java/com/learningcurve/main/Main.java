@@ -1,42 +1,521 @@
 package com.learningcurve.main;
 
+import java.io.BufferedOutputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
 
 
-import com.learningcurve.compiler.DefaultReader;
+import com.learningcurve.compiler.CompressedOutput;
+import com.learningcurve.compiler.DocumentIndex;
+import com.learningcurve.compiler.FragmentCache;
+import com.learningcurve.compiler.HTMLTranslator;
+import com.learningcurve.compiler.ImageMetadataCache;
+import com.learningcurve.compiler.JsonTranslator;
+import com.learningcurve.compiler.LineStore;
 import com.learningcurve.compiler.Parser;
 import com.learningcurve.compiler.JsonErrorListener;
+import com.learningcurve.compiler.SearchIndex;
+import com.learningcurve.compiler.SearchIndexer;
+import com.learningcurve.compiler.StreamingReader;
+import com.learningcurve.compiler.TextTranslator;
+import com.learningcurve.compiler.TokenCache;
+import com.learningcurve.compiler.adapter.Translator;
+import com.learningcurve.compiler.metrics.CompilerMetrics;
+import com.learningcurve.compiler.metrics.LineProfiler;
+
+import javax.management.JMException;
 
 
 public class Main {
+
+    // Acima desse tamanho, o programa é compilado em pipeline mesmo sem --pipeline,
+    // se houver um processador para cada estágio (leitura, análise e tradução)
+    private static final long PIPELINE_THRESHOLD = 8L << 20;
+    private static final int PIPELINE_PROCESSORS = 3;
+
+    /**
+     * Opções de linha de comando, usadas em cada arquivo compilado
+     */
+    static class Options {
+        boolean compactCode = false;
+        boolean minify = false;
+        boolean sharedAssets = false;
+        boolean splitPages = false;
+        boolean lazyMedia = false;
+        int eagerMedia = 0;
+        CompressedOutput.Format compression = null;
+        int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        boolean keepPlain = false;
+        boolean showStats = false;
+        boolean json = false;
+        boolean useCache = false;
+        String indexFile = null;
+        boolean watch = false;
+        String profileFile = null;
+        boolean pipeline = false;
+
+        // Arquivos incluídos já analisados, compartilhados por todos os arquivos compilados
+        final FragmentCache fragments = new FragmentCache();
+
+        // Dimensões das imagens locais, compartilhadas por todos os arquivos compilados
+        ImageMetadataCache imageMetadata = null;
+
+        // Métricas publicadas via JMX, acumuladas por todos os arquivos compilados
+        CompilerMetrics metrics = null;
+
+        // Saídas adicionais (arquivo -> tradutor), geradas da mesma análise
+        final Map<String, Supplier<Translator>> extraOutputs = new LinkedHashMap<>();
+    }
+
     public static void main(String[] args) {
         final var inputFile = args[0];
         final var outputFile = args[1];
+        final var options = new Options();
+
+        // Opções depois dos arquivos de entrada e saída
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--compact-code":
+                    options.compactCode = true;
+                    break;
+
+                case "--minify":
+                    options.minify = true;
+                    break;
+
+                case "--shared-assets":
+                    options.sharedAssets = true;
+                    break;
+
+                case "--split-pages":
+                    options.splitPages = true;
+                    break;
+
+                case "--lazy-media":
+                    options.lazyMedia = true;
+                    break;
+
+                case "--probe-images":
+                    if (options.imageMetadata == null)
+                        options.imageMetadata = new ImageMetadataCache(null);
+                    break;
+
+                case "--gzip":
+                    options.compression = CompressedOutput.Format.GZIP;
+                    break;
+
+                case "--deflate":
+                    options.compression = CompressedOutput.Format.DEFLATE;
+                    break;
+
+                case "--keep-plain":
+                    options.keepPlain = true;
+                    break;
+
+                case "--json":
+                    options.json = true;
+                    break;
+
+                case "--cache":
+                    options.useCache = true;
+                    break;
+
+                case "--stats":
+                    options.showStats = true;
+                    break;
+
+                case "--watch":
+                    options.watch = true;
+                    break;
+
+                case "--jmx":
+                    options.metrics = new CompilerMetrics();
+                    break;
+
+                case "--pipeline":
+                    options.pipeline = true;
+                    break;
+
+                default:
+                    if (args[i].startsWith("--level=")) {
+                        var level = intOption(args[i], "--level=", Deflater.DEFAULT_COMPRESSION,
+                                Deflater.BEST_COMPRESSION);
+
+                        if (level != null)
+                            options.compressionLevel = level;
+                    } else if (args[i].startsWith("--text-out="))
+                        options.extraOutputs.put(args[i].substring("--text-out=".length()), TextTranslator::new);
+                    else if (args[i].startsWith("--json-out="))
+                        options.extraOutputs.put(args[i].substring("--json-out=".length()), JsonTranslator::new);
+                    else if (args[i].startsWith("--eager-media=")) {
+                        var eager = intOption(args[i], "--eager-media=", 0, Integer.MAX_VALUE);
+
+                        if (eager != null)
+                            options.eagerMedia = eager;
+                    } else if (args[i].startsWith("--image-cache="))
+                        options.imageMetadata = new ImageMetadataCache(
+                                Path.of(args[i].substring("--image-cache=".length())));
+                    else if (args[i].startsWith("--index="))
+                        options.indexFile = args[i].substring("--index=".length());
+                    else if (args[i].startsWith("--profile="))
+                        options.profileFile = args[i].substring("--profile=".length());
+                    else
+                        System.out.printf("Opção desconhecida: %s\n", args[i]);
+                    break;
+            }
+        }
+
+        // Com --jmx, as métricas ficam visíveis enquanto o processo roda (por exemplo, com --watch)
+        if (options.metrics != null) {
+            try {
+                options.metrics.register();
+            } catch (JMException e) {
+                System.out.println("Erro ao registrar as métricas no JMX!");
+            }
+        }
+
+        final var folder = Files.isDirectory(Path.of(inputFile));
+
+        if (folder && !options.extraOutputs.isEmpty()) {
+            System.out.println("As opções --text-out e --json-out são ignoradas na compilação de uma pasta.");
+            options.extraOutputs.clear();
+        }
+
+        if (folder && options.profileFile != null) {
+            System.out.println("A opção --profile é ignorada na compilação de uma pasta.");
+            options.profileFile = null;
+        }
+
+        // Com --watch, compila uma vez e continua recompilando o que mudar, até o processo ser interrompido
+        if (options.watch) {
+            try {
+                new Watcher(Path.of(inputFile), Path.of(outputFile), options).run();
+            } catch (IOException e) {
+                System.out.printf("Erro ao observar a pasta de %s!\n", inputFile);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return;
+        }
+
+        final var indexes = new ArrayList<DocumentIndex>();
+
+        // Se a entrada for uma pasta, compila todos os arquivos .lcml para a pasta de saída
+        if (folder) {
+            compileFolder(Path.of(inputFile), Path.of(outputFile), options, indexes);
+        } else {
+            compile(inputFile, outputFile, options, indexes);
+        }
+
+        if (options.indexFile != null)
+            writeIndex(indexes, options.indexFile);
+
+        if (options.showStats && options.fragments.getMisses() > 0)
+            System.out.printf("Arquivos incluídos: %d analisados, %d reaproveitados do cache.\n",
+                    options.fragments.getMisses(), options.fragments.getHits());
+
+        if (options.imageMetadata != null) {
+            try {
+                options.imageMetadata.save();
+            } catch (IOException e) {
+                System.out.println("Erro ao gravar o cache de dimensões das imagens!");
+            }
+        }
+    }
+
+    /**
+     * Compila todos os arquivos .lcml de uma pasta, gerando &lt;nome&gt;.html na pasta de saída
+     *
+     * @param inputFolder  Pasta de entrada
+     * @param outputFolder Pasta de saída
+     * @param options      Opções
+     * @param indexes      Recebe o índice de busca de cada documento compilado, se houver indexação
+     */
+    private static void compileFolder(Path inputFolder, Path outputFolder, Options options,
+                                      List<DocumentIndex> indexes) {
+        try (var files = Files.list(inputFolder)) {
+            Files.createDirectories(outputFolder);
+
+            for (var file : files.filter(path -> path.toString().endsWith(".lcml")).sorted().toList()) {
+                var output = outputFor(file, outputFolder, options);
+
+                System.out.printf("%s -> %s\n", file, output);
+                compile(file.toString(), output.toString(), options, indexes);
+            }
+        } catch (IOException e) {
+            System.out.printf("Erro de leitura na pasta %s!\n", inputFolder);
+        }
+    }
 
-        try (final var reader = new FileReader(inputFile);
-             final var writer = new PrintStream(outputFile);) {
+    /**
+     * Arquivo de saída de um documento compilado como parte de uma pasta
+     *
+     * @param file         Arquivo .lcml
+     * @param outputFolder Pasta de saída
+     * @param options      Opções
+     * @return &lt;pasta de saída&gt;/&lt;nome&gt;.html (ou .json)
+     */
+    static Path outputFor(Path file, Path outputFolder, Options options) {
+        var name = file.getFileName().toString();
+
+        return outputFolder.resolve(name.substring(0, name.length() - ".lcml".length())
+                + (options.json ? ".json" : ".html"));
+    }
+
+    /**
+     * Resultado da compilação de um arquivo
+     *
+     * @param success  V se não houve erro
+     * @param includes Arquivos incluídos com #include, direta ou indiretamente
+     */
+    record Compilation(boolean success, Set<Path> includes) {
+    }
+
+    /**
+     * Compila um arquivo
+     *
+     * @param inputFile  Arquivo de entrada
+     * @param outputFile Arquivo de saída
+     * @param options    Opções
+     * @param indexes    Recebe o índice de busca do documento, se houver indexação
+     * @return Resultado da compilação
+     */
+    static Compilation compile(String inputFile, String outputFile, Options options, List<DocumentIndex> indexes) {
+        final var translator = new HTMLTranslator();
+        translator.setCompactCode(options.compactCode);
+        translator.setMinify(options.minify);
+        translator.setSharedAssets(options.sharedAssets);
+        translator.setLazyMedia(options.lazyMedia);
+        translator.setEagerMedia(options.eagerMedia);
+        translator.setImageMetadata(options.imageMetadata, Path.of(outputFile).toAbsolutePath().getParent());
+
+        // Com --split-pages, as páginas ficam ao lado da saída: <saída sem extensão>-1.html, -2.html...
+        if (options.splitPages) {
+            final var output = Path.of(outputFile).toAbsolutePath();
+            final var baseName = output.getFileName().toString().replaceFirst("\\.[^.]*$", "");
+
+            translator.setSplitPages(baseName, fileName -> new BufferedOutputStream(
+                    new FileOutputStream(output.resolveSibling(fileName).toFile())));
+        }
+
+        // Com compressão, a saída vai para <saída>.gz (ou .deflate) e, opcionalmente, também para <saída>
+        final var compressor = options.compression == null ? null
+                : new CompressedOutput(options.compression, options.compressionLevel);
+
+        try (final var reader = new FileReader(inputFile)) {
 
             // Passar o nosso jsonErrorListener para o parser
             final var jsonErrorListener = new JsonErrorListener();
-            final var textReader = new DefaultReader(reader);
-            final var parser = new Parser(textReader, writer, jsonErrorListener);
+            // Em pipeline, as linhas são lidas aos poucos, ao mesmo tempo que a análise e a tradução
+            final var pipelined = options.pipeline || (Files.size(Path.of(inputFile)) >= PIPELINE_THRESHOLD
+                    && Runtime.getRuntime().availableProcessors() >= PIPELINE_PROCESSORS);
+            final var textReader = pipelined ? new StreamingReader(reader) : new LineStore(reader);
+
+            // Com --profile, mede cada linha na análise e na tradução para HTML
+            final var profiler = options.profileFile == null ? null : new LineProfiler();
+            translator.setProfiler(profiler);
+
+            final var extraStreams = new ArrayList<PrintStream>();
+            final var extraListeners = new ArrayList<JsonErrorListener>();
+
+            // A indexação acontece junto com a tradução, a partir dos mesmos tokens
+            final var indexer = options.indexFile == null ? null
+                    : new SearchIndexer(Path.of(outputFile).getFileName().toString());
+
+            final Parser parser;
+            final boolean resultado;
+            final Set<Path> includes;
+
+            // A saída é fechada no fim desse bloco, para terminar a compressão antes de coletar as estatísticas
+            try (final var writer = new PrintStream(counted(openOutput(outputFile, compressor, options.keepPlain),
+                    options))) {
+                parser = new Parser(textReader, writer, jsonErrorListener);
+                parser.setPipelined(pipelined);
+                parser.setKeepTokens(options.useCache);
+                parser.setSourcePath(Path.of(inputFile));
+                parser.setFragmentCache(options.fragments);
+                parser.setMetrics(options.metrics);
+                parser.setProfiler(profiler);
+                // Com --json, gera a árvore do documento em vez do HTML
+                parser.setTranslator(options.json ? new JsonTranslator() : translator);
+
+                for (var extra : options.extraOutputs.entrySet()) {
+                    var stream = new PrintStream(counted(new BufferedOutputStream(
+                            new FileOutputStream(extra.getKey())), options));
+                    var listener = new JsonErrorListener();
+
+                    extraStreams.add(stream);
+                    extraListeners.add(listener);
+                    parser.addOutput(extra.getValue().get(), stream, listener);
+                }
+
+                if (indexer != null)
+                    parser.addOutput(indexer, new PrintStream(OutputStream.nullOutputStream()),
+                            new JsonErrorListener());
+
+                // Com --cache, usa os tokens gravados em <entrada>.lcmlc se o fonte não mudou
+                final var cacheFile = Path.of(inputFile + TokenCache.EXTENSION);
+                final var checksum = options.useCache ? TokenCache.checksum(Path.of(inputFile)) : 0;
+                final var cached = options.useCache ? TokenCache.read(cacheFile, checksum) : null;
+
+                // Os arquivos incluídos vêm do cache quando o documento não é analisado, para o --watch
+                if (cached != null) {
+                    resultado = parser.translate(cached.tokens());
+                    includes = cached.dependencies().keySet();
+                } else {
+                    resultado = parser.compile();
+                    includes = parser.getDependencies().keySet();
+
+                    // Uma falha ao gravar o cache não invalida a saída, que já foi gerada
+                    if (resultado && options.useCache) {
+                        try {
+                            TokenCache.write(parser.getTokens(), checksum, parser.getDependencies(), cacheFile);
+                        } catch (IOException e) {
+                            System.out.printf("Aviso: não foi possível gravar o cache %s (%s).\n", cacheFile,
+                                    e.getMessage());
+                        }
+                    }
+                }
+            } finally {
+                // As saídas adicionais são fechadas mesmo se a compilação falhar
+                for (var stream : extraStreams) {
+                    stream.close();
+                }
+            }
+
+            for (var listener : extraListeners) {
+                for (var error : listener.getErrors()) {
+                    System.out.printf("Erro na saída adicional: %s\n", error.getErrorMessage());
+                }
+            }
+
+            if (resultado && indexer != null)
+                indexes.add(indexer.getIndex());
+
+            parser.getStats().setBytesSaved(translator.getBytesSaved());
+
+            if (compressor != null)
+                parser.getStats().setCompression(compressor.getCompressionNanos(), compressor.getInputBytes(),
+                        compressor.getOutputBytes());
+
+            if (options.showStats)
+                System.out.println(parser.getStats());
+
+            if (profiler != null) {
+                try {
+                    profiler.write(Path.of(options.profileFile));
+                    System.out.printf("Perfil gravado em %s.\n", options.profileFile);
+                } catch (IOException e) {
+                    System.out.printf("Erro ao gravar o perfil %s!\n", options.profileFile);
+                }
+            }
+
+            for (var warning : jsonErrorListener.getWarnings()) {
+                System.out.printf("Aviso na linha %d: %s\n", warning.getLineNumber(), warning.getErrorMessage());
+            }
 
-            boolean resultado = parser.compile();
             if (resultado == true) {
-                System.out.println("Conversão para HTML concluída.");
+                System.out.printf("Conversão para %s concluída.\n", options.json ? "JSON" : "HTML");
             } else {
                 if (!jsonErrorListener.getErrors().isEmpty()) {
                     jsonErrorListener.saveErrors();
                 }
             }
+
+            return new Compilation(resultado, Set.copyOf(includes));
         } catch (FileNotFoundException e) {
             System.out.printf("Arquivo %s não encontrado!\n", outputFile);
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             System.out.printf("Erro de leitura no arquivo %s!\n", outputFile);
         }
+
+        return new Compilation(false, Set.of());
+    }
+
+    /**
+     * Junta os índices dos documentos compilados e grava o índice de busca
+     *
+     * @param indexes   Índices de cada documento
+     * @param indexFile Arquivo do índice
+     */
+    static void writeIndex(List<DocumentIndex> indexes, String indexFile) {
+        try {
+            var index = SearchIndex.merge(indexes);
+            index.write(Path.of(indexFile));
+
+            System.out.printf("Índice de busca: %d documentos, %d termos.\n", index.getDocuments().size(),
+                    index.getTermCount());
+        } catch (IOException e) {
+            System.out.printf("Erro ao gravar o índice de busca %s!\n", indexFile);
+        }
+    }
+
+    /**
+     * Lê o valor de uma opção numérica (--nome=valor)
+     *
+     * @param arg    Argumento da linha de comando
+     * @param prefix Nome da opção, com o '='
+     * @param min    Menor valor aceito
+     * @param max    Maior valor aceito
+     * @return Valor ou nulo, se não for um número entre min e max; nesse caso a opção é ignorada
+     */
+    private static Integer intOption(String arg, String prefix, int min, int max) {
+        try {
+            var value = Integer.parseInt(arg.substring(prefix.length()));
+
+            if (value >= min && value <= max)
+                return value;
+        } catch (NumberFormatException e) {
+            // Tratado abaixo
+        }
+
+        System.out.printf("Opção inválida: %s\n", arg);
+        return null;
+    }
+
+    /**
+     * Com --jmx, conta os bytes escritos no fluxo
+     */
+    private static OutputStream counted(OutputStream output, Options options) {
+        return options.metrics == null ? output : options.metrics.countBytes(output);
+    }
+
+    /**
+     * Abre o arquivo de saída, com ou sem compressão
+     *
+     * @param outputFile Arquivo de saída
+     * @param compressor Compressor ou nulo, para saída sem compressão
+     * @param keepPlain  Com compressão, gera também o arquivo sem compressão
+     * @return Fluxo de saída
+     * @throws IOException Em caso de erro ao criar os arquivos
+     */
+    private static OutputStream openOutput(String outputFile, CompressedOutput compressor, boolean keepPlain)
+            throws IOException {
+        if (compressor == null)
+            return new BufferedOutputStream(new FileOutputStream(outputFile));
+
+        OutputStream output = compressor.open(
+                new FileOutputStream(outputFile + compressor.getFormat().getExtension()));
+
+        if (keepPlain)
+            output = CompressedOutput.tee(new FileOutputStream(outputFile), output);
+
+        return new BufferedOutputStream(output);
     }
 
 }
@@ -0,0 +1,238 @@
+package com.learningcurve.main;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import com.learningcurve.compiler.DocumentIndex;
+
+/**
+ * Modo --watch: observa as pastas dos programas e recompila somente os documentos alterados
+ * e as lições que incluem um arquivo alterado, aproveitando a JVM já aquecida e o cache de fragmentos.
+ */
+class Watcher {
+
+    // Editores costumam gravar um arquivo em vários passos; espera esse tempo sem eventos antes de compilar
+    private static final long DEBOUNCE_MILLIS = 150;
+
+    private final Path input;
+    private final Path output;
+    private final Main.Options options;
+    private final boolean folder;
+
+    private final Set<Path> watchedFolders = new HashSet<>();
+
+    // Documento -> arquivos que ele inclui, direta ou indiretamente
+    private final Map<Path, Set<Path>> includes = new HashMap<>();
+
+    // Índice de busca de cada documento compilado sem erro
+    private final Map<Path, DocumentIndex> indexes = new TreeMap<>();
+
+    private WatchService service;
+
+    /**
+     * @param input   Arquivo .lcml ou pasta de entrada
+     * @param output  Arquivo ou pasta de saída
+     * @param options Opções
+     */
+    Watcher(Path input, Path output, Main.Options options) {
+        this.input = input.toAbsolutePath().normalize();
+        this.output = output;
+        this.options = options;
+        this.folder = Files.isDirectory(this.input);
+    }
+
+    /**
+     * Compila todos os documentos e passa a observar as alterações, até a thread ser interrompida
+     *
+     * @throws IOException          Se não for possível observar as pastas
+     * @throws InterruptedException Se a thread for interrompida
+     */
+    void run() throws IOException, InterruptedException {
+        try (var watchService = FileSystems.getDefault().newWatchService()) {
+            service = watchService;
+
+            if (folder)
+                Files.createDirectories(output);
+
+            watch(folder ? input : input.getParent());
+            recompile(documents(), System.nanoTime());
+
+            System.out.printf("Observando alterações em %s (Ctrl+C para sair).\n", input);
+
+            for (;;) {
+                var changed = new HashSet<Path>();
+                var all = collect(service.take(), changed);
+                var start = System.nanoTime();
+
+                // Junta os eventos até as gravações pararem
+                WatchKey key;
+
+                while ((key = service.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    all |= collect(key, changed);
+                }
+
+                // Uma rodada com erro é reportada e a observação continua
+                try {
+                    var affected = all ? documents() : affected(changed);
+
+                    if (!affected.isEmpty())
+                        recompile(affected, start);
+                } catch (IOException | RuntimeException e) {
+                    System.out.printf("Erro ao recompilar: %s\n", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recompila os documentos e mostra o tempo de cada um e o total desde a alteração
+     *
+     * @param documents Documentos a compilar
+     * @param start     Instante da primeira alteração (System.nanoTime)
+     */
+    private void recompile(Set<Path> documents, long start) {
+        var compiled = 0;
+
+        for (var document : documents) {
+            if (!Files.isRegularFile(document)) {
+                includes.remove(document);
+                indexes.remove(document);
+                continue;
+            }
+
+            var target = folder ? Main.outputFor(document, output, options) : output;
+            var documentIndexes = new ArrayList<DocumentIndex>();
+            var compileStart = System.nanoTime();
+
+            System.out.printf("%s -> %s\n", document, target);
+
+            // Um documento com erro inesperado mantém as inclusões da última compilação e não impede os outros
+            Main.Compilation compilation;
+
+            try {
+                compilation = Main.compile(document.toString(), target.toString(), options, documentIndexes);
+            } catch (RuntimeException e) {
+                System.out.printf("Erro ao compilar %s: %s\n", document, e);
+                continue;
+            }
+
+            System.out.printf("Compilado em %.1f ms.\n", (System.nanoTime() - compileStart) / 1e6);
+            compiled++;
+
+            includes.put(document, compilation.includes());
+
+            if (documentIndexes.isEmpty())
+                indexes.remove(document);
+            else
+                indexes.put(document, documentIndexes.get(0));
+
+            // Observa também as pastas dos arquivos incluídos
+            for (var include : compilation.includes()) {
+                try {
+                    watch(include.getParent());
+                } catch (IOException e) {
+                    System.out.printf("Erro ao observar a pasta de %s!\n", include);
+                }
+            }
+        }
+
+        if (options.indexFile != null)
+            Main.writeIndex(new ArrayList<>(indexes.values()), options.indexFile);
+
+        if (options.imageMetadata != null) {
+            try {
+                options.imageMetadata.save();
+            } catch (IOException e) {
+                System.out.println("Erro ao gravar o cache de dimensões das imagens!");
+            }
+        }
+
+        System.out.printf("%d documento(s) atualizado(s) em %.1f ms.\n", compiled,
+                (System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Documentos afetados pelos arquivos alterados: os próprios documentos e as lições que os incluem
+     */
+    private Set<Path> affected(Set<Path> changed) {
+        var documents = new TreeSet<Path>();
+
+        for (var path : changed) {
+            if (isDocument(path))
+                documents.add(path);
+        }
+
+        for (var entry : includes.entrySet()) {
+            for (var path : changed) {
+                if (entry.getValue().contains(path))
+                    documents.add(entry.getKey());
+            }
+        }
+
+        return documents;
+    }
+
+    /**
+     * Lê os eventos de uma pasta, guardando os arquivos .lcml alterados
+     *
+     * @return V se houve perda de eventos e todos os documentos devem ser recompilados
+     */
+    private boolean collect(WatchKey key, Set<Path> changed) {
+        var all = false;
+        var dir = (Path) key.watchable();
+
+        for (var event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                all = true;
+                continue;
+            }
+
+            var path = dir.resolve((Path) event.context());
+
+            if (path.toString().endsWith(".lcml"))
+                changed.add(path);
+        }
+
+        // A pasta deixou de existir
+        if (!key.reset())
+            watchedFolders.remove(dir);
+
+        return all;
+    }
+
+    private boolean isDocument(Path path) {
+        return folder ? input.equals(path.getParent()) && path.toString().endsWith(".lcml") : input.equals(path);
+    }
+
+    private Set<Path> documents() throws IOException {
+        if (!folder)
+            return new TreeSet<>(List.of(input));
+
+        try (var files = Files.list(input)) {
+            return files.filter(path -> path.toString().endsWith(".lcml")).collect(TreeSet::new, Set::add, Set::addAll);
+        }
+    }
+
+    private void watch(Path dir) throws IOException {
+        if (dir != null && watchedFolders.add(dir))
+            dir.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    }
+}
@@ -0,0 +1,158 @@
+package com.learningcurve.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Fila circular entre a thread produtora e a consumidora do pipeline
+ */
+public class BatchRingTest {
+
+	private static final class Batch {
+		int value;
+	}
+
+	private static BatchRing<Batch> ring(int capacity) {
+		return new BatchRing<>(capacity, Batch::new);
+	}
+
+	private static void produce(BatchRing<Batch> ring, int value) {
+		ring.claim().value = value;
+		ring.publish();
+	}
+
+	private static int consume(BatchRing<Batch> ring) {
+		var value = ring.next().value;
+		ring.release();
+		return value;
+	}
+
+	@Test
+	public void batchesArriveInOrder() {
+		var ring = ring(4);
+
+		for (int i = 0; i < 4; i++)
+			produce(ring, i);
+
+		for (int i = 0; i < 4; i++)
+			assertEquals(i, consume(ring));
+	}
+
+	@Test
+	public void capacityIsRoundedToAPowerOfTwo() {
+		var created = new AtomicInteger();
+
+		new BatchRing<>(5, () -> {
+			created.incrementAndGet();
+			return new Batch();
+		});
+
+		assertEquals(8, created.get());
+	}
+
+	@Test
+	public void batchesAreReused() {
+		var ring = ring(2);
+
+		produce(ring, 1);
+		var first = ring.next();
+		ring.release();
+
+		produce(ring, 2);
+		produce(ring, 3);
+		consume(ring);
+
+		assertEquals(first, ring.next());
+	}
+
+	@Test
+	public void closeEndsAfterThePublishedBatches() {
+		var ring = ring(4);
+
+		produce(ring, 7);
+		ring.close();
+
+		assertEquals(7, consume(ring));
+		assertNull(ring.next());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void failureReachesTheConsumer() {
+		var ring = ring(4);
+
+		ring.fail(new IllegalStateException());
+		ring.next();
+	}
+
+	@Test(expected = OutOfMemoryError.class)
+	public void errorReachesTheConsumer() {
+		var ring = ring(4);
+
+		ring.fail(new OutOfMemoryError());
+		ring.next();
+	}
+
+	@Test
+	public void cancelReleasesBothSides() {
+		var ring = ring(2);
+
+		produce(ring, 1);
+		ring.cancel();
+
+		assertNull(ring.next());
+
+		try {
+			ring.claim();
+			fail("claim depois de cancel");
+		} catch (CancellationException e) {
+			// Esperado
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void fullRingMakesTheProducerWait() throws InterruptedException {
+		var ring = ring(2);
+		var count = 10_000;
+
+		var producer = new Thread(() -> {
+			for (int i = 0; i < count; i++)
+				produce(ring, i);
+
+			ring.close();
+		});
+		producer.start();
+
+		for (int i = 0; i < count; i++)
+			assertEquals(i, consume(ring));
+
+		assertNull(ring.next());
+		producer.join();
+	}
+
+	@Test(timeout = 10000)
+	public void cancelWakesAWaitingProducer() throws InterruptedException {
+		var ring = ring(2);
+		var cancelled = new AtomicInteger();
+
+		var producer = new Thread(() -> {
+			try {
+				for (;;)
+					produce(ring, 0);
+			} catch (CancellationException e) {
+				cancelled.incrementAndGet();
+			}
+		});
+		producer.start();
+
+		ring.cancel();
+		producer.join();
+
+		assertEquals(1, cancelled.get());
+	}
+}
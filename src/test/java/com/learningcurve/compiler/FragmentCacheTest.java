@@ -0,0 +1,109 @@
+package com.learningcurve.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Validação dos fragmentos em cache pelo tamanho, data de modificação e checksum dos arquivos
+ */
+public class FragmentCacheTest {
+
+	private static final FileTime MODIFIED = FileTime.fromMillis(1_600_000_000_000L);
+
+	/**
+	 * Analisador falso: o fragmento só guarda o checksum dos arquivos informados
+	 */
+	private static FragmentCache.Loader loader(AtomicInteger loads, Path... includes) {
+		return (path, checksum) -> {
+			loads.incrementAndGet();
+
+			var dependencies = new LinkedHashMap<Path, Long>();
+			dependencies.put(path, checksum);
+
+			for (var include : includes)
+				dependencies.put(include, TokenCache.checksum(include));
+
+			return new FragmentCache.Fragment(List.of(), List.of(), List.of(), List.of(), Map.copyOf(dependencies));
+		};
+	}
+
+	private static Path write(Path file, String content) throws IOException {
+		Files.writeString(file, content);
+		Files.setLastModifiedTime(file, MODIFIED);
+		return file;
+	}
+
+	@Test
+	public void unchangedFilesAreNotReloaded() throws IOException {
+		var folder = Files.createTempDirectory("fragmentos");
+		var file = write(folder.resolve("a.lcml"), "Texto");
+		var include = write(folder.resolve("b.lcml"), "Incluso");
+		var cache = new FragmentCache();
+		var loads = new AtomicInteger();
+
+		var first = cache.get(file, loader(loads, include));
+
+		assertSame(first, cache.get(file, loader(loads, include)));
+		assertSame(first, cache.get(file, loader(loads, include)));
+		assertEquals(1, loads.get());
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void changedFileIsReloaded() throws IOException {
+		var folder = Files.createTempDirectory("fragmentos");
+		var file = write(folder.resolve("a.lcml"), "Texto");
+		var cache = new FragmentCache();
+		var loads = new AtomicInteger();
+
+		cache.get(file, loader(loads));
+		write(file, "Outro texto");
+		cache.get(file, loader(loads));
+
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void changedIncludeIsReloaded() throws IOException {
+		var folder = Files.createTempDirectory("fragmentos");
+		var file = write(folder.resolve("a.lcml"), "Texto");
+		var include = write(folder.resolve("b.lcml"), "Incluso");
+		var cache = new FragmentCache();
+		var loads = new AtomicInteger();
+
+		cache.get(file, loader(loads, include));
+
+		// Mesmo tamanho, data de modificação diferente
+		Files.writeString(include, "Inclusa");
+		Files.setLastModifiedTime(include, FileTime.fromMillis(MODIFIED.toMillis() + 1000));
+		cache.get(file, loader(loads, include));
+
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void touchedFileWithTheSameContentIsKept() throws IOException {
+		var folder = Files.createTempDirectory("fragmentos");
+		var file = write(folder.resolve("a.lcml"), "Texto");
+		var cache = new FragmentCache();
+		var loads = new AtomicInteger();
+
+		cache.get(file, loader(loads));
+		Files.setLastModifiedTime(file, FileTime.fromMillis(MODIFIED.toMillis() + 1000));
+		cache.get(file, loader(loads));
+
+		assertEquals(1, loads.get());
+	}
+}
@@ -0,0 +1,82 @@
+package com.learningcurve.compiler;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Marcação de texto do InlineMarkup (saída JSON) comparada com a do HTMLTranslator
+ */
+public class InlineMarkupTest {
+
+	private final HTMLTranslator html = new HTMLTranslator();
+
+	/**
+	 * Gera o HTML dos trechos com as mesmas tags do HTMLTranslator
+	 */
+	private static String render(List<InlineMarkup.Span> spans) {
+		var text = new StringBuilder();
+
+		for (var span : spans) {
+			switch (span.type()) {
+				case "text":
+					text.append(span.text());
+					break;
+				case "link":
+					text.append("<a href='").append(span.href()).append("'>").append(render(span.children()))
+							.append("</a>");
+					break;
+				case "s":
+					text.append("<del>").append(render(span.children())).append("</del>");
+					break;
+				case "big":
+					text.append("<span style='font-size:larger;'>").append(render(span.children())).append("</span>");
+					break;
+				default:
+					text.append('<').append(span.type()).append('>').append(render(span.children())).append("</")
+							.append(span.type()).append('>');
+					break;
+			}
+		}
+
+		return text.toString();
+	}
+
+	private void assertSameAsHtml(String text) {
+		assertEquals(text, html.convertMarkingText(text), render(InlineMarkup.parse(text)));
+	}
+
+	@Test
+	public void oneMarkOfEachTypeMatchesHtml() {
+		assertSameAsHtml("texto sem marcação");
+		assertSameAsHtml("texto **negrito** fim");
+		assertSameAsHtml("*i* e **b**");
+		assertSameAsHtml("__u__ ^s^ ~b~ ++g++");
+		assertSameAsHtml("~~a~~ ~b~");
+		assertSameAsHtml("[link](http://example.com) e ~~r~~");
+		assertSameAsHtml("a*b");
+	}
+
+	@Test
+	public void nestedMarksMatchHtml() {
+		assertSameAsHtml("**nested *it* x**");
+		assertSameAsHtml("**[a](u)**");
+	}
+
+	@Test
+	public void repeatedMarksDiffer() {
+		assertEquals("<b>a</b> e <b>b</b>", render(InlineMarkup.parse("**a** e **b**")));
+		assertEquals("*<i>a*</i> e <b>b</b>", html.convertMarkingText("**a** e **b**"));
+
+		assertEquals("<a href='u'>a</a> <a href='v'>b</a>", render(InlineMarkup.parse("[a](u) [b](v)")));
+		assertEquals("[a](u) <a href='v'>b</a>", html.convertMarkingText("[a](u) [b](v)"));
+	}
+
+	@Test
+	public void linkEndsAtFirstParenthesis() {
+		assertEquals("<a href='f(x'>a</a>)", render(InlineMarkup.parse("[a](f(x))")));
+		assertEquals("<a href='f(x)'>a</a>", html.convertMarkingText("[a](f(x))"));
+	}
+}
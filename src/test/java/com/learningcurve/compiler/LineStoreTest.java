@@ -0,0 +1,139 @@
+package com.learningcurve.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.learningcurve.compiler.adapter.TextReader;
+
+/**
+ * Linhas do LineStore (e do StreamingReader) comparadas com as do DefaultReader
+ */
+public class LineStoreTest {
+
+	/**
+	 * Lê todas as linhas, guardando também o número da linha depois de cada leitura e depois do fim
+	 */
+	private static List<String> readAll(TextReader reader) {
+		var lines = new ArrayList<String>();
+
+		for (String line; (line = reader.readLine()) != null;)
+			lines.add(reader.currentLineNumber() + ": " + line);
+
+		lines.add("fim: " + reader.currentLineNumber());
+		assertNull(reader.readLine());
+
+		return lines;
+	}
+
+	private static LineStore assertSameLines(String text) throws IOException {
+		var expected = readAll(new DefaultReader(new StringReader(text)));
+		var store = new LineStore(new StringReader(text));
+
+		assertEquals(text, expected, readAll(store));
+		assertEquals(text, expected, readAll(new StreamingReader(new StringReader(text))));
+		assertEquals(text, expected.size() - 1, store.lineCount());
+
+		return store;
+	}
+
+	@Test
+	public void lineEndings() throws IOException {
+		assertSameLines("a\nb\r\nc\rd");
+		assertSameLines("a\r\n\r\nb\n\rc\r\r\n");
+		assertSameLines("\n\n");
+		assertSameLines("\r");
+		assertSameLines("");
+	}
+
+	@Test
+	public void lastLineWithAndWithoutLineBreak() throws IOException {
+		assertSameLines("primeira\nsegunda");
+		assertSameLines("primeira\nsegunda\n");
+		assertSameLines("primeira\nsegunda\r\n");
+	}
+
+	@Test
+	public void trailingWhitespace() throws IOException {
+		assertSameLines("a  \nb\t\t\r\nc \f\u000B\n   \n\t\nd e \n");
+		assertSameLines("  início mantido\n");
+		// O $ do DefaultReader também casa antes de um separador de linha Unicode no fim da linha
+		assertSameLines("a \u2028\nb \u0085\nc\u00A0 \n\u2029\n \u2029 \n \u2029\nx\t \u2028");
+	}
+
+	@Test
+	public void latin1Text() throws IOException {
+		var store = assertSameLines("ação é ÿ\ncoração  \n");
+
+		assertEquals(store.line(1).length() + store.line(2).length(), store.textBytes());
+	}
+
+	@Test
+	public void textAboveLatin1() throws IOException {
+		var store = assertSameLines("linha\nseta → e emoji 😀 \nfim");
+
+		assertEquals(2L * (store.line(1).length() + store.line(2).length() + store.line(3).length()),
+				store.textBytes());
+	}
+
+	@Test
+	public void wideCharacterAfterCompaction() throws IOException {
+		// O caractere largo só aparece depois de muitas linhas já compactadas
+		var text = "linha com espaços   \r\n".repeat(1000) + "Ω\n";
+
+		assertSameLines(text);
+	}
+
+	@Test
+	public void textLargerThanTheReadBuffer() throws IOException {
+		assertSameLines("x".repeat(8192));
+		assertSameLines("x".repeat(8191) + "\n");
+		assertSameLines(("abc \n").repeat(5000));
+	}
+
+	@Test
+	public void lineAndSeek() throws IOException {
+		var store = new LineStore(new StringReader("um \ndois\r\ntrês"));
+
+		assertEquals("dois", store.line(2).toString());
+		assertEquals("ois", store.line(2).subSequence(1, 4).toString());
+		assertEquals('t', store.line(3).charAt(0));
+
+		store.seek(3);
+		assertEquals("três", store.readLine());
+		assertEquals(3, store.currentLineNumber());
+
+		store.seek(1);
+		assertEquals(0, store.currentLineNumber());
+		assertEquals("um", store.readLine());
+
+		store.seek(4);
+		assertNull(store.readLine());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void seekBeforeTheFirstLine() throws IOException {
+		new LineStore(new StringReader("a\nb")).seek(0);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void seekAfterTheEnd() throws IOException {
+		new LineStore(new StringReader("a\nb")).seek(4);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void lineAfterTheEnd() throws IOException {
+		new LineStore(new StringReader("a\nb")).line(3);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void viewBounds() throws IOException {
+		new LineStore(new StringReader("abc")).line(1).charAt(3);
+	}
+}
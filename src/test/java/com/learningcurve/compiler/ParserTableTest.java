@@ -0,0 +1,104 @@
+package com.learningcurve.compiler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.learningcurve.compiler.ParserTable.Action;
+
+/**
+ * Transições da tabela padrão do analisador sintático e a pilha de contextos
+ */
+public class ParserTableTest {
+
+	private final ParserTable table = ParserTable.standard();
+
+	private Action action(Context context, TokenType type) {
+		return table.lookup(context, type).action();
+	}
+
+	@Test
+	public void headersOnlyInDefault() {
+		assertEquals(Action.EMIT, action(Context.DEFAULT, TokenType.HEADER1));
+		assertEquals(Action.EMIT, action(Context.DEFAULT, TokenType.HEADER3));
+		assertEquals(Action.IGNORE, action(Context.LIST, TokenType.HEADER1));
+		assertEquals(Action.IGNORE, action(Context.PARAGRAPH, TokenType.HEADER2));
+	}
+
+	@Test
+	public void blocksPushTheirContext() {
+		for (var context : new Context[] { Context.DEFAULT, Context.CONCEPTS, Context.SCENARIO, Context.QUESTION }) {
+			var transition = table.lookup(context, TokenType.BEGIN_TABLE);
+
+			assertEquals(Action.PUSH, transition.action());
+			assertEquals(Context.TABLE, transition.target());
+			assertEquals(Context.CODE, table.lookup(context, TokenType.BEGIN_SOURCE).target());
+			assertEquals(Context.LIST, table.lookup(context, TokenType.BEGIN_LIST).target());
+		}
+
+		assertEquals(Context.CONCEPTS, table.lookup(Context.DEFAULT, TokenType.BEGIN_CONCEPTS).target());
+		assertEquals(Context.QUESTION, table.lookup(Context.DEFAULT, TokenType.BEGIN_QUESTION).target());
+		assertEquals(Action.IGNORE, action(Context.CONCEPTS, TokenType.BEGIN_QUESTION));
+	}
+
+	@Test
+	public void blocksPopOnTheirEnd() {
+		assertEquals(Action.POP, action(Context.CODE, TokenType.END_SOURCE));
+		assertEquals(Action.POP, action(Context.LIST, TokenType.END_LIST));
+		assertEquals(Action.POP, action(Context.TABLE, TokenType.END_TABLE));
+		assertEquals(Action.POP, action(Context.QUESTION, TokenType.END_QUESTION));
+		assertEquals(Action.IGNORE, action(Context.LIST, TokenType.END_TABLE));
+	}
+
+	@Test
+	public void paragraphs() {
+		assertEquals(Action.BEGIN_PARAGRAPH, action(Context.DEFAULT, TokenType.TEXT));
+		assertEquals(Action.BEGIN_PARAGRAPH, action(Context.SCENARIO, TokenType.TEXT));
+		assertEquals(Action.EMIT, action(Context.PARAGRAPH, TokenType.TEXT));
+		assertEquals(Action.EMIT, action(Context.PARAGRAPH, TokenType.BREAK));
+		assertEquals(Action.END_PARAGRAPH, action(Context.PARAGRAPH, TokenType.EMPTY_LINE));
+	}
+
+	@Test
+	public void unclosedBlocksAtEof() {
+		var transition = table.lookup(Context.TABLE, TokenType.EOF);
+
+		assertEquals(Action.ERROR, transition.action());
+		assertEquals("Unexpected EOF", transition.message());
+		assertEquals(Action.ERROR, action(Context.CODE, TokenType.EOF));
+		assertEquals(Action.IGNORE, action(Context.DEFAULT, TokenType.EOF));
+		assertEquals(Action.IGNORE, action(Context.PARAGRAPH, TokenType.EOF));
+	}
+
+	@Test
+	public void includeOnlyInDefault() {
+		assertEquals(Action.INCLUDE, action(Context.DEFAULT, TokenType.INCLUDE));
+		assertEquals(Action.IGNORE, action(Context.LIST, TokenType.INCLUDE));
+	}
+
+	@Test
+	public void customCell() {
+		var custom = new ParserTable().error(Context.DEFAULT, TokenType.VIDEO, "Sem vídeos");
+
+		assertEquals(Action.ERROR, custom.lookup(Context.DEFAULT, TokenType.VIDEO).action());
+		assertEquals(Action.IGNORE, custom.lookup(Context.DEFAULT, TokenType.IMAGE).action());
+	}
+
+	@Test
+	public void contextStackGrows() {
+		var stack = new ContextStack();
+
+		for (int i = 0; i < 20; i++) {
+			stack.push(i % 2 == 0 ? Context.DEFAULT : Context.LIST);
+		}
+
+		assertEquals(20, stack.size());
+		assertEquals(Context.LIST, stack.pop());
+		assertEquals(Context.DEFAULT, stack.peek());
+
+		stack.clear();
+		assertNull(stack.peek());
+		assertNull(stack.pop());
+	}
+}
@@ -0,0 +1,197 @@
+package com.learningcurve.compiler;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.learningcurve.compiler.adapter.ErrorListener;
+import com.learningcurve.compiler.adapter.TextReader;
+
+/**
+ * A compilação em pipeline deve gerar a mesma saída e os mesmos erros, na mesma ordem, que a sequencial
+ */
+public class PipelineTest {
+
+	private static final String LESSON = """
+			#1 Título **negrito**
+			#2 Seção
+
+			Um parágrafo com [link](http://x.com) e ~~riscado~~
+			continua aqui
+
+			#concepts
+			- Conceito um
+			#concepts
+
+			#table border
+			=Nome|>Idade
+			Ana|30
+			Bob|25
+			#table
+
+			#question
+			Pergunta?
+
+			()Sim
+			(*)Não
+			#question
+
+			#img foto.png "Uma foto" 100 200
+			#video https://youtube.com/embed/abc 640 480
+			""";
+
+	/**
+	 * Tradutor que também reporta um aviso em cada imagem e um erro em cada vídeo
+	 */
+	private static final class ReportingTranslator extends HTMLTranslator {
+
+		private ErrorListener listener;
+		private int errors;
+
+		@Override
+		public void begin(PrintStream out, ErrorListener errorListener) {
+			super.begin(out, errorListener);
+			this.listener = errorListener;
+			this.errors = 0;
+		}
+
+		@Override
+		public void accept(TokenNode token) {
+			if (token.type() == TokenType.IMAGE)
+				listener.semanticWarning("Imagem traduzida", null, token.lineNumber());
+
+			if (token.type() == TokenType.VIDEO) {
+				listener.semanticError("Vídeo recusado", null, token.lineNumber());
+				errors++;
+			}
+
+			super.accept(token);
+		}
+
+		@Override
+		public int end() {
+			return super.end() + errors;
+		}
+	}
+
+	/**
+	 * Resultado de uma compilação: indicação de sucesso, saída e erros e avisos formatados
+	 */
+	private record Result(boolean success, String output, List<String> diagnostics) {
+	}
+
+	private static Result compile(String program, boolean pipelined, HTMLTranslator translator) throws IOException {
+		var bytes = new ByteArrayOutputStream();
+		var listener = new JsonErrorListener();
+		TextReader reader = pipelined ? new StreamingReader(new StringReader(program))
+				: new LineStore(new StringReader(program));
+
+		var parser = new Parser(reader, new PrintStream(bytes, true, StandardCharsets.UTF_8), listener);
+		parser.setPrintSyntax(false);
+		parser.setPipelined(pipelined);
+		parser.setTranslator(translator);
+
+		var success = parser.compile();
+		var diagnostics = new ArrayList<String>();
+
+		for (var error : listener.getErrors())
+			diagnostics.add("erro " + error.getLineNumber() + ": " + error.getErrorMessage());
+
+		for (var warning : listener.getWarnings())
+			diagnostics.add("aviso " + warning.getLineNumber() + ": " + warning.getErrorMessage());
+
+		return new Result(success, bytes.toString(StandardCharsets.UTF_8), diagnostics);
+	}
+
+	private static Result assertSameResult(String program) throws IOException {
+		var sequential = compile(program, false, new ReportingTranslator());
+		var pipelined = compile(program, true, new ReportingTranslator());
+
+		assertEquals(sequential, pipelined);
+		return sequential;
+	}
+
+	@Test
+	public void translationErrors() throws IOException {
+		var result = assertSameResult(LESSON);
+
+		assertEquals(false, result.success());
+		assertEquals(List.of("erro 25: Vídeo recusado", "aviso 8: O conceito \"conceito um\" não é citado no restante"
+				+ " do documento.", "aviso 24: Imagem traduzida"), result.diagnostics());
+	}
+
+	@Test
+	public void semanticErrorsAndWarnings() throws IOException {
+		var result = assertSameResult(LESSON.replace("Bob|25\n", "Bob\n").replace("(*)Não", "()Não"));
+
+		assertEquals(false, result.success());
+		assertEquals("", result.output());
+		assertEquals(3, result.diagnostics().size());
+	}
+
+	@Test
+	public void validLesson() throws IOException {
+		var result = assertSameResult(LESSON.replace("#video https://youtube.com/embed/abc 640 480\n", ""));
+
+		assertEquals(true, result.success());
+		assertEquals(true, result.output().contains("<table"));
+	}
+
+	@Test
+	public void syntaxErrors() throws IOException {
+		var result = assertSameResult("#1 Título\n\nTexto\n\n#table\n=A|B\n1|2\n");
+
+		assertEquals(false, result.success());
+		assertEquals("", result.output());
+	}
+
+	@Test
+	public void documentLongerThanManyBatches() throws IOException {
+		var program = new StringBuilder();
+
+		for (int i = 0; i < Pipeline.BATCH_SIZE * Pipeline.RING_SIZE * 3; i++)
+			program.append("Parágrafo ").append(i).append(" com **negrito**\n\n");
+
+		var result = assertSameResult(program.toString());
+
+		assertEquals(true, result.success());
+	}
+
+	@Test(timeout = 10000, expected = StackOverflowError.class)
+	public void errorInTheTranslatorIsRethrown() throws IOException {
+		var translator = new HTMLTranslator() {
+			@Override
+			public void accept(TokenNode token) {
+				throw new StackOverflowError();
+			}
+		};
+
+		compile(LESSON, true, translator);
+	}
+
+	@Test(timeout = 10000, expected = OutOfMemoryError.class)
+	public void errorInTheReaderIsRethrown() throws IOException {
+		var reader = new StreamingReader(new StringReader("Texto\n".repeat(10_000))) {
+			@Override
+			public String readLine() {
+				if (currentLineNumber() == 5_000)
+					throw new OutOfMemoryError();
+
+				return super.readLine();
+			}
+		};
+
+		var parser = new Parser(reader, new PrintStream(new ByteArrayOutputStream()), new JsonErrorListener());
+		parser.setPrintSyntax(false);
+		parser.setPipelined(true);
+		parser.compile();
+	}
+}